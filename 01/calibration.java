@@ -1,17 +1,35 @@
 ///usr/bin/env jbang "$0" "$@" ; exit $?
+//SOURCES mappedsum.java
 
 
 import static java.lang.System.*;
 import java.util.regex.Pattern;
 import java.util.Scanner;
 import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.file.*;
 
 public class calibration {
 
+    /**
+     * Usage: calibration [mmap] [file]
+     * <p>
+     * Without arguments the file is read line by line. {@code mmap} maps the file and sums
+     * newline aligned chunks in parallel, see {@link mappedsum}.
+     */
     public static void main(String... args) throws Exception {
+        var file = args.length > 1 ? args[1] : "input.txt";
+        if (args.length > 0 && args[0].equals("mmap")) {
+            var start = nanoTime();
+            var result = mappedsum.sum(Path.of(file), calibration::sumLines);
+            var seconds = (nanoTime() - start) / 1e9;
+            out.println(result.sum());
+            out.printf("%d bytes in %.3f s, %.1f MB/s\n", result.bytes(), seconds, result.bytes() / 1e6 / seconds);
+            return;
+        }
         // read every line of input txt, combine first and last number into one string,
         // sum all resulting numbers.
-        var input = new Scanner(new File("input.txt"));
+        var input = new Scanner(new File(file));
         var sum = 0;
         while (input.hasNextLine()) {
             var line = input.nextLine();
@@ -40,4 +58,33 @@ public class calibration {
         var result = matcher.find();
         return matcher.group(1);
     }
+
+    /**
+     * Sum of calibration values of lines in {@code [from, to)} of a mapped buffer. Every line is expected
+     * to end with a newline, except possibly the last one of the file.
+     */
+    static long sumLines(MappedByteBuffer buffer, int from, int to) {
+        var sum = 0L;
+        var first = -1;
+        var last = -1;
+        for (int i = from; i < to; i++) {
+            var b = buffer.get(i);
+            if (b >= '0' && b <= '9') {
+                if (first < 0) {
+                    first = b - '0';
+                }
+                last = b - '0';
+            } else if (b == '\n') {
+                if (first < 0) {
+                    throw new IllegalArgumentException("No digit in line ending at byte " + i);
+                }
+                sum += first * 10 + last;
+                first = -1;
+            }
+        }
+        if (first >= 0) {
+            sum += first * 10 + last;
+        }
+        return sum;
+    }
 }
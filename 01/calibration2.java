@@ -1,17 +1,45 @@
 ///usr/bin/env jbang "$0" "$@" ; exit $?
+//SOURCES mappedsum.java
 
 
 import static java.lang.System.*;
 import java.util.regex.Pattern;
 import java.util.Scanner;
 import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.file.*;
 
 public class calibration2 {
 
+    /**
+     * Usage: calibration2 [scan|regex|diff|mmap] [file]
+     * <p>
+     * {@code scan} (default) runs the byte level {@link DigitScanner}, {@code regex} the original
+     * per-line patterns, and {@code diff} runs both and reports every line where they disagree.
+     * {@code mmap} maps the file and scans newline aligned chunks in parallel, see {@link mappedsum}.
+     */
     public static void main(String... args) throws Exception {
+        var mode = args.length > 0 ? args[0] : "scan";
+        var file = args.length > 1 ? args[1] : "input.txt";
+        switch (mode) {
+            case "regex" -> out.println(regexSum(file));
+            case "scan" -> out.println(scanSum(file));
+            case "diff" -> diff(file);
+            case "mmap" -> {
+                var start = nanoTime();
+                var result = mappedsum.sum(Path.of(file), calibration2::sumLines);
+                var seconds = (nanoTime() - start) / 1e9;
+                out.println(result.sum());
+                out.printf("%d bytes in %.3f s, %.1f MB/s\n", result.bytes(), seconds, result.bytes() / 1e6 / seconds);
+            }
+            default -> throw new IllegalArgumentException("Unknown mode " + mode);
+        }
+    }
+
+    static int regexSum(String file) throws IOException {
         // read every line of input txt, combine first and last number into one string,
         // sum all resulting numbers.
-        var input = new Scanner(new File("input.txt"));
+        var input = new Scanner(new File(file));
         var sum = 0;
         while (input.hasNextLine()) {
             var line = input.nextLine();
@@ -24,7 +52,63 @@ public class calibration2 {
                 throw new IllegalArgumentException("For input: "+line, e);
             }
         }
-        out.println(sum);
+        return sum;
+    }
+
+    static long scanSum(String file) throws IOException {
+        var sum = 0L;
+        try (var lines = new LineReader(new FileInputStream(file))) {
+            while (lines.next()) {
+                sum += DigitScanner.calibrationValue(lines.buffer(), 0, lines.length());
+            }
+        }
+        return sum;
+    }
+
+    static void diff(String file) throws IOException {
+        var input = new Scanner(new File(file));
+        var lineNo = 0;
+        var mismatches = 0;
+        while (input.hasNextLine()) {
+            var line = input.nextLine();
+            lineNo++;
+            var expected = Integer.parseInt(firstNumber(line) + lastNumber(line));
+            var bytes = line.getBytes();
+            var actual = DigitScanner.calibrationValue(bytes, 0, bytes.length);
+            if (expected != actual) {
+                out.printf("%d: regex %d, scan %d for %s\n", lineNo, expected, actual, line);
+                mismatches++;
+            }
+        }
+        out.printf("%d lines, %d mismatches\n", lineNo, mismatches);
+    }
+
+    /**
+     * Sum of calibration values of lines in {@code [from, to)} of a mapped buffer. Each line is copied
+     * into a reused array so that {@link DigitScanner} can run on it.
+     */
+    static long sumLines(MappedByteBuffer buffer, int from, int to) {
+        var sum = 0L;
+        var line = new byte[256];
+        var start = from;
+        for (int i = from; i <= to; i++) {
+            if (i < to && buffer.get(i) != '\n') {
+                continue;
+            }
+            var length = i - start;
+            if (length > 0 && buffer.get(start + length - 1) == '\r') {
+                length--;
+            }
+            if (length > 0 || i < to) {
+                if (length > line.length) {
+                    line = new byte[Integer.highestOneBit(length) << 1];
+                }
+                buffer.get(start, line, 0, length);
+                sum += DigitScanner.calibrationValue(line, 0, length);
+            }
+            start = i + 1;
+        }
+        return sum;
     }
 
     private static String NUMBER = "(one|two|three|four|five|six|seven|eight|nine|\\d)";
@@ -57,4 +141,154 @@ public class calibration2 {
             default -> match;
         };
     }
+
+    /**
+     * Finds first and last digit of a line with one forward and one backward pass over raw bytes.
+     * Spelled-out digits are matched by a trie over lowercase letters; the backward pass uses a trie
+     * of the reversed words, so overlapping forms like "twone" resolve to 2 going forward and 1 going back.
+     */
+    static class DigitScanner {
+        static final String[] WORDS = {"one", "two", "three", "four", "five", "six", "seven", "eight", "nine"};
+        static final Trie FORWARD = new Trie(false);
+        static final Trie BACKWARD = new Trie(true);
+
+        static int calibrationValue(byte[] line, int from, int to) {
+            var first = first(line, from, to);
+            var last = last(line, from, to);
+            if (first < 0 || last < 0) {
+                throw new IllegalArgumentException("No digit in: " + new String(line, from, to - from));
+            }
+            return first * 10 + last;
+        }
+
+        static int first(byte[] line, int from, int to) {
+            for (int i = from; i < to; i++) {
+                var b = line[i];
+                if (b >= '0' && b <= '9') {
+                    return b - '0';
+                }
+                var digit = FORWARD.match(line, i, from, to, 1);
+                if (digit > 0) {
+                    return digit;
+                }
+            }
+            return -1;
+        }
+
+        static int last(byte[] line, int from, int to) {
+            for (int i = to - 1; i >= from; i--) {
+                var b = line[i];
+                if (b >= '0' && b <= '9') {
+                    return b - '0';
+                }
+                var digit = BACKWARD.match(line, i, from, to, -1);
+                if (digit > 0) {
+                    return digit;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * Trie of the digit words flattened into a transition table. State 0 is the root,
+     * a missing transition is 0, and {@code value[state]} holds the digit a state accepts.
+     */
+    static class Trie {
+        final int[][] next;
+        final int[] value;
+
+        Trie(boolean reversed) {
+            var states = 1 + String.join("", DigitScanner.WORDS).length();
+            next = new int[states][26];
+            value = new int[states];
+            var count = 1;
+            for (int d = 0; d < DigitScanner.WORDS.length; d++) {
+                var word = DigitScanner.WORDS[d];
+                var state = 0;
+                for (int i = 0; i < word.length(); i++) {
+                    var c = word.charAt(reversed ? word.length() - 1 - i : i) - 'a';
+                    if (next[state][c] == 0) {
+                        next[state][c] = count++;
+                    }
+                    state = next[state][c];
+                }
+                value[state] = d + 1;
+            }
+        }
+
+        /**
+         * Walks from {@code start} in direction {@code step} and returns the digit of the word found, or 0.
+         */
+        int match(byte[] line, int start, int from, int to, int step) {
+            var state = 0;
+            for (int i = start; i >= from && i < to; i += step) {
+                var c = line[i] - 'a';
+                if (c < 0 || c >= 26) {
+                    return 0;
+                }
+                state = next[state][c];
+                if (state == 0) {
+                    return 0;
+                }
+                if (value[state] != 0) {
+                    return value[state];
+                }
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * Splits an input stream into lines without decoding, reusing one growing buffer.
+     */
+    static class LineReader implements Closeable {
+        private final InputStream in;
+        private final byte[] chunk = new byte[1 << 16];
+        private int chunkPos, chunkLen;
+        private byte[] line = new byte[256];
+        private int length;
+
+        LineReader(InputStream in) {
+            this.in = in;
+        }
+
+        boolean next() throws IOException {
+            length = 0;
+            while (true) {
+                if (chunkPos == chunkLen) {
+                    chunkLen = in.read(chunk);
+                    chunkPos = 0;
+                    if (chunkLen <= 0) {
+                        chunkLen = 0;
+                        return length > 0;
+                    }
+                }
+                var b = chunk[chunkPos++];
+                if (b == '\n') {
+                    return true;
+                }
+                if (b == '\r') {
+                    continue;
+                }
+                if (length == line.length) {
+                    line = java.util.Arrays.copyOf(line, length * 2);
+                }
+                line[length++] = b;
+            }
+        }
+
+        byte[] buffer() {
+            return line;
+        }
+
+        int length() {
+            return length;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
 }
@@ -0,0 +1,95 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Memory mapped, chunk parallel summation shared by {@code calibration} and {@code calibration2} via {@code //SOURCES}.
+ * <p>
+ * Splits the file at newline boundaries until each piece is at most a per-core share, maps each piece
+ * with {@link FileChannel#map} and sums them with a {@link ChunkSum} on the common fork-join pool.
+ */
+public class mappedsum extends RecursiveTask<Long> {
+
+    /**
+     * Sum of the lines in {@code [from, to)} of a mapped buffer. Every line but possibly the last one of the
+     * file ends with a newline.
+     */
+    interface ChunkSum {
+        long sum(MappedByteBuffer buffer, int from, int to);
+    }
+
+    record Result(long sum, long bytes) {}
+
+    private final FileChannel channel;
+    private final ChunkSum chunkSum;
+    private final long from, to, threshold;
+
+    mappedsum(FileChannel channel, ChunkSum chunkSum, long from, long to, long threshold) {
+        this.channel = channel;
+        this.chunkSum = chunkSum;
+        this.from = from;
+        this.to = to;
+        this.threshold = threshold;
+    }
+
+    static Result sum(Path file, ChunkSum chunkSum) throws IOException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            var size = channel.size();
+            var cores = Runtime.getRuntime().availableProcessors();
+            var threshold = Math.min(Math.max(size / cores + 1, 1 << 20), Integer.MAX_VALUE);
+            var sum = ForkJoinPool.commonPool().invoke(new mappedsum(channel, chunkSum, 0, size, threshold));
+            return new Result(sum, size);
+        }
+    }
+
+    @Override
+    protected Long compute() {
+        try {
+            if (to - from <= threshold) {
+                var buffer = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+                return chunkSum.sum(buffer, 0, (int) (to - from));
+            }
+            var middle = nextLine(from + (to - from) / 2);
+            if (middle >= to) {
+                // no newline in the second half, split after the first line instead
+                middle = nextLine(from);
+            }
+            if (middle >= to) {
+                throw new IllegalArgumentException("Line at byte %d longer than %d bytes".formatted(from, threshold));
+            }
+            var left = new mappedsum(channel, chunkSum, from, middle, threshold);
+            var right = new mappedsum(channel, chunkSum, middle, to, threshold);
+            left.fork();
+            return right.compute() + left.join();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Position just after the first newline at or after {@code position}, or {@code to} when there is none.
+     */
+    private long nextLine(long position) throws IOException {
+        var probe = ByteBuffer.allocate(4096);
+        while (position < to) {
+            probe.clear();
+            var read = channel.read(probe, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read && position + i < to; i++) {
+                if (probe.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return to;
+    }
+}
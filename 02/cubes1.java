@@ -35,14 +35,98 @@ public class cubes1 {
 
     static Map<String,Integer> limits = Map.of("red", 12, "green", 13, "blue", 14);
 
+    /**
+     * Usage: cubes1 [stream|packed|bench [games]|batch limits-file]
+     * <p>
+     * {@code stream} (default) is the original record based parsing, {@code packed} uses {@link PackedGame},
+     * and {@code bench} compares both on a generated file of {@code games} games (10M by default).
+     * {@code batch} reads a colour schema from the first line of {@code limits-file} and one limit vector
+     * ({@code red=12 green=13 blue=14}) per following line, and prints the id sum for each of them.
+     */
     public static void main(String... args) throws Exception {
-        var result = Files.lines(Paths.get("cubes2.txt")).map(cubes1::parseGame)
-        //.filter(Game::isPossible)
-        //.mapToInt(Game::id)
-        //.sum();
-            .mapToInt(Game::power)
-            .sum();
-        out.println(result);
+        var mode = args.length > 0 ? args[0] : "stream";
+        switch (mode) {
+            case "stream" -> {
+                var result = Files.lines(Paths.get("cubes2.txt")).map(cubes1::parseGame)
+                //.filter(Game::isPossible)
+                //.mapToInt(Game::id)
+                //.sum();
+                    .mapToInt(Game::power)
+                    .sum();
+                out.println(result);
+            }
+            case "packed" -> {
+                var result = Files.lines(Paths.get("cubes2.txt")).map(PackedGame::parse)
+                    .mapToInt(PackedGame::power)
+                    .sum();
+                out.println(result);
+            }
+            case "batch" -> {
+                var lines = Files.readAllLines(Paths.get(args[1]));
+                var schema = new Schema(lines.get(0).trim().split("\\s+"));
+                var specs = lines.stream().skip(1).filter(l -> !l.isBlank()).map(String::trim).toList();
+                var limitSets = specs.stream().map(schema::limits).toArray(int[][]::new);
+                var table = GameTable.parse(Files.lines(Paths.get("cubes2.txt")), schema);
+                var sums = table.idSums(limitSets);
+                for (int l = 0; l < sums.length; l++) {
+                    out.printf("%s: %d\n", specs.get(l), sums[l]);
+                }
+            }
+            case "bench" -> benchmark(args.length > 1 ? Integer.parseInt(args[1]) : 10_000_000);
+            default -> throw new IllegalArgumentException("Unknown mode " + mode);
+        }
+    }
+
+    static void benchmark(int games) throws IOException {
+        var file = Files.createTempFile("cubes", ".txt");
+        try {
+            var random = new Random(2023);
+            try (var writer = Files.newBufferedWriter(file)) {
+                for (int id = 1; id <= games; id++) {
+                    writer.write(randomGame(random, id));
+                    writer.newLine();
+                }
+            }
+            out.printf("Generated %d games, %d MB\n", games, Files.size(file) >> 20);
+            for (int round = 0; round < 3; round++) {
+                var start = nanoTime();
+                var streamed = Files.lines(file).map(cubes1::parseGame)
+                    .mapToLong(g -> g.power() + (g.isPossible() ? g.id() : 0)).sum();
+                var streamTime = (nanoTime() - start) / 1e9;
+                start = nanoTime();
+                var packed = Files.lines(file).map(PackedGame::parse)
+                    .mapToLong(g -> g.power() + (g.isPossible() ? g.id() : 0)).sum();
+                var packedTime = (nanoTime() - start) / 1e9;
+                if (streamed != packed) {
+                    throw new IllegalStateException("Results differ: %d vs %d".formatted(streamed, packed));
+                }
+                out.printf("stream %.3f s, packed %.3f s\n", streamTime, packedTime);
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    static String randomGame(Random random, int id) {
+        var game = new StringBuilder("Game ").append(id).append(':');
+        var rounds = 1 + random.nextInt(6);
+        for (int r = 0; r < rounds; r++) {
+            if (r > 0) {
+                game.append(';');
+            }
+            var first = true;
+            for (var colour : Schema.RGB.colours()) {
+                if (random.nextInt(4) == 0) {
+                    continue;
+                }
+                game.append(first ? " " : ", ").append(1 + random.nextInt(20)).append(' ').append(colour);
+                first = false;
+            }
+            if (first) {
+                game.append(' ').append(1 + random.nextInt(20)).append(" red");
+            }
+        }
+        return game.toString();
     }
 
     private static Game parseGame(String line) {
@@ -102,4 +186,169 @@ The power of a set of cubes is equal to the numbers of red, green, and blue cube
             return shown().getOrDefault(key, 0);
         }
     }
+
+    /**
+     * Ordered set of cube colours. The position of a colour is its index in packed maxima and limit vectors.
+     */
+    record Schema(String... colours) {
+        static final Schema RGB = new Schema("red", "green", "blue");
+
+        int size() {
+            return colours.length;
+        }
+
+        /**
+         * Index of the colour whose name starts at {@code from} in {@code line}.
+         */
+        int index(String line, int from) {
+            for (int c = 0; c < colours.length; c++) {
+                var colour = colours[c];
+                var end = from + colour.length();
+                if (line.startsWith(colour, from) && (end == line.length() || !Character.isLetter(line.charAt(end)))) {
+                    return c;
+                }
+            }
+            throw new IllegalArgumentException("Unknown colour at %d in %s".formatted(from, line));
+        }
+
+        /**
+         * Parses a limit vector like {@code red=12 green=13 blue=14}. Colours not mentioned have limit 0.
+         */
+        int[] limits(String spec) {
+            var limits = new int[colours.length];
+            for (var part : spec.trim().split("[\\s,]+")) {
+                var kv = part.split("=");
+                limits[index(kv[0], 0)] = Integer.parseInt(kv[1]);
+            }
+            return limits;
+        }
+    }
+
+    /**
+     * Game reduced to the maximum shown count per colour, indexed by position in the {@link Schema}.
+     * Parsed by a single cursor walk over the line, without splitting or regular expressions.
+     */
+    record PackedGame(int id, int[] maxima) {
+        static final int[] LIMITS = {12, 13, 14};
+
+        static PackedGame parse(String line) {
+            return parse(line, Schema.RGB);
+        }
+
+        static PackedGame parse(String line, Schema schema) {
+            var maxima = new int[schema.size()];
+            var i = line.indexOf(' ') + 1;
+            var id = 0;
+            while (line.charAt(i) != ':') {
+                id = id * 10 + line.charAt(i++) - '0';
+            }
+            var length = line.length();
+            while (++i < length) {
+                var c = line.charAt(i);
+                if (c < '0' || c > '9') {
+                    continue;
+                }
+                var count = 0;
+                while (c >= '0' && c <= '9') {
+                    count = count * 10 + c - '0';
+                    c = line.charAt(++i);
+                }
+                var colour = schema.index(line, ++i);
+                if (count > maxima[colour]) {
+                    maxima[colour] = count;
+                }
+                i += schema.colours()[colour].length() - 1;
+            }
+            return new PackedGame(id, maxima);
+        }
+
+        boolean isPossible() {
+            return isPossible(LIMITS);
+        }
+
+        boolean isPossible(int[] limits) {
+            for (int c = 0; c < maxima.length; c++) {
+                if (maxima[c] > limits[c]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Product of maxima of the colours that were shown at least once, same as {@link Game#power()}.
+         */
+        int power() {
+            var power = 1;
+            for (var max : maxima) {
+                if (max > 0) {
+                    power *= max;
+                }
+            }
+            return power;
+        }
+    }
+
+    /**
+     * Games parsed once into columns: {@code maxima[colour][game]} next to {@code ids[game]}.
+     */
+    record GameTable(Schema schema, int size, int[] ids, int[][] maxima) {
+        static GameTable parse(Stream<String> lines, Schema schema) {
+            var ids = new int[1024];
+            var maxima = new int[schema.size()][1024];
+            var size = 0;
+            for (var line : (Iterable<String>) lines::iterator) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                var game = PackedGame.parse(line, schema);
+                if (size == ids.length) {
+                    ids = Arrays.copyOf(ids, size * 2);
+                    for (int c = 0; c < maxima.length; c++) {
+                        maxima[c] = Arrays.copyOf(maxima[c], size * 2);
+                    }
+                }
+                ids[size] = game.id();
+                for (int c = 0; c < maxima.length; c++) {
+                    maxima[c][size] = game.maxima()[c];
+                }
+                size++;
+            }
+            return new GameTable(schema, size, ids, maxima);
+        }
+
+        /**
+         * Sum of ids of possible games for each of the limit vectors in {@code limitSets[set][colour]}.
+         * <p>
+         * Games are visited once. For each game the inner loops run over all limit sets laid out
+         * column-wise, branch free, so the JIT can vectorize them: the sign bit of {@code limit - max}
+         * marks a set the game exceeds.
+         */
+        long[] idSums(int[][] limitSets) {
+            var sets = limitSets.length;
+            var limits = new int[schema.size()][sets];
+            for (int l = 0; l < sets; l++) {
+                for (int c = 0; c < limits.length; c++) {
+                    limits[c][l] = limitSets[l][c];
+                }
+            }
+            var sums = new long[sets];
+            var exceeded = new int[sets];
+            for (int g = 0; g < size; g++) {
+                Arrays.fill(exceeded, 0);
+                for (int c = 0; c < limits.length; c++) {
+                    var max = maxima[c][g];
+                    var column = limits[c];
+                    for (int l = 0; l < sets; l++) {
+                        exceeded[l] |= column[l] - max;
+                    }
+                }
+                var id = ids[g];
+                for (int l = 0; l < sets; l++) {
+                    sums[l] += (long) id * (1 - (exceeded[l] >>> 31));
+                }
+            }
+            return sums;
+        }
+    }
 }
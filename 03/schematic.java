@@ -27,31 +27,106 @@ In this schematic, two numbers are not part numbers because they are not adjacen
  */
 public class schematic {
 
+    /**
+     * Usage: schematic [stream]
+     * <p>
+     * By default the whole schematic is indexed in memory. {@code stream} runs the {@link SlidingWindow}
+     * evaluator over the lines as they are read.
+     */
     public static void main(String... args) throws Exception {
-        var lines = readLines();
-        var schematic = new Schematic(lines);
+        if (args.length > 0 && args[0].equals("stream")) {
+            var window = new SlidingWindow((row, value) -> {}, (row, ratio) -> {});
+            try (var lines = Files.lines(Paths.get("schematic2.txt"))) {
+                lines.forEach(window::accept);
+            }
+            window.finish();
+            out.println("Part 1: " + window.partSum());
+            out.println("Part 2: " + window.gearSum());
+            return;
+        }
+        var schematic = Schematic.of(readLines());
         out.println("Part 1: " + schematic.sumOfPartNumbers());
         out.println("Part 2: " + schematic.sumOfGears());
     }
 
-    static List<Line> readLines() throws IOException {
-        return Files.lines(Paths.get("schematic2.txt")).map(Line::new).collect(Collectors.toList());
+    static List<String> readLines() throws IOException {
+        return Files.readAllLines(Paths.get("schematic2.txt"));
+    }
+
+    static final String SYMBOLS = "!@#$%^&*()_+=_\\/,:;'\"?|{}<>-";
+    static final boolean[] IS_SYMBOL = new boolean[128];
+    static {
+        for (var c : SYMBOLS.toCharArray()) {
+            IS_SYMBOL[c] = true;
+        }
+    }
+
+    static boolean isSymbol(char c) {
+        return c < IS_SYMBOL.length && IS_SYMBOL[c];
     }
 
-    record Schematic(List<Line> lines) {
-        public int sumOfPartNumbers() {
-            var sum = 0;
-            for (int i=0; i<lines.size(); i++) {
-                var line = lines.get(i);
-                var numbers = line.numbers();
-                for (var number : numbers) {
-                    if (isAdjacentToSymbol(i, number)) {
-                        sum += number.value;
-                    } else {
-                        out.printf("%d %s invalid\n", i, number);
+    /**
+     * Schematic indexed once over a {@code char[][]} grid. {@code numberIds} holds for every cell the id of the
+     * number covering it (0 for none), {@code values} the value of each id, and {@code symbols} has a bit set
+     * for every symbol cell. Cells are addressed as {@code row * width + column}.
+     */
+    record Schematic(char[][] grid, int width, int[] numberIds, int[] values, BitSet symbols) {
+        static Schematic of(List<String> lines) {
+            var height = lines.size();
+            var width = lines.stream().mapToInt(String::length).max().orElse(0);
+            var grid = new char[height][];
+            var numberIds = new int[height * width];
+            var values = new int[16];
+            var symbols = new BitSet(height * width);
+            var nextId = 1;
+            for (int row = 0; row < height; row++) {
+                grid[row] = Arrays.copyOf(lines.get(row).toCharArray(), width);
+                var line = grid[row];
+                for (int col = 0; col < width; col++) {
+                    var c = line[col];
+                    if (c >= '0' && c <= '9') {
+                        var value = 0;
+                        while (col < width && line[col] >= '0' && line[col] <= '9') {
+                            value = value * 10 + line[col] - '0';
+                            numberIds[row * width + col++] = nextId;
+                        }
+                        col--;
+                        if (nextId == values.length) {
+                            values = Arrays.copyOf(values, nextId * 2);
+                        }
+                        values[nextId++] = value;
+                    } else if (isSymbol(c)) {
+                        symbols.set(row * width + col);
+                    }
+                }
+            }
+            return new Schematic(grid, width, numberIds, Arrays.copyOf(values, nextId), symbols);
+        }
+
+        int height() {
+            return grid.length;
+        }
+
+        /**
+         * Marks every number next to a symbol by a sweep over symbol cells, then sums the marked numbers.
+         */
+        public long sumOfPartNumbers() {
+            var part = new boolean[values.length];
+            for (int cell = symbols.nextSetBit(0); cell >= 0; cell = symbols.nextSetBit(cell + 1)) {
+                var row = cell / width;
+                var col = cell % width;
+                for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, height() - 1); r++) {
+                    for (int c = Math.max(col - 1, 0); c <= Math.min(col + 1, width - 1); c++) {
+                        part[numberIds[r * width + c]] = true;
                     }
                 }
             }
+            var sum = 0L;
+            for (int id = 1; id < values.length; id++) {
+                if (part[id]) {
+                    sum += values[id];
+                }
+            }
             return sum;
         }
 
@@ -73,91 +148,156 @@ Consider the same engine schematic again:
 
 In this schematic, there are two gears. The first is in the top left; it has part numbers 467 and 35, so its gear ratio is 16345. The second gear is in the lower right; its gear ratio is 451490. (The * adjacent to 617 is not a gear because it is only adjacent to one part number.) Adding up all of the gear ratios produces 467835.
          */
-        public int sumOfGears() {
-            var sum = 0;
-            for (int i=0; i<lines.size(); i++) {
-                var line = lines.get(i);
-                var lineIndex = i;
-                sum += line.gearCandidates().map(index -> {
-                    var numbers = Stream.concat(gearCandidates(lineIndex-1, index),
-                         Stream.concat(gearCandidates(lineIndex, index), gearCandidates(lineIndex+1, index)))
-                         .collect(Collectors.toList());
-                    if (numbers.size() == 2) {
-                        return numbers.get(0).value() * numbers.get(1).value();
-                    } else {
-                        return 0;
+        public long sumOfGears() {
+            var sum = 0L;
+            for (int cell = symbols.nextSetBit(0); cell >= 0; cell = symbols.nextSetBit(cell + 1)) {
+                var row = cell / width;
+                var col = cell % width;
+                if (grid[row][col] != '*') {
+                    continue;
+                }
+                int first = 0, second = 0, count = 0;
+                for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, height() - 1); r++) {
+                    for (int c = Math.max(col - 1, 0); c <= Math.min(col + 1, width - 1); c++) {
+                        var id = numberIds[r * width + c];
+                        if (id == 0 || id == first || id == second) {
+                            continue;
+                        }
+                        count++;
+                        if (first == 0) {
+                            first = id;
+                        } else {
+                            second = id;
+                        }
                     }
-                }).sum();
+                }
+                if (count == 2) {
+                    sum += (long) values[first] * values[second];
+                }
             }
             return sum;
         }
+    }
 
-        Stream<Number> gearCandidates(int lineIndex, int gearIndex) {
-            if (lineIndex < 0 || lineIndex >= lines.size()) {
-                return Stream.of();
-            }
-            return lines.get(lineIndex).adjacentNumbers(gearIndex);
-        }
+    interface Contribution {
+        void emit(int row, long value);
+    }
 
+    /**
+     * Streaming evaluator keeping only the previous, current and next row in a ring buffer.
+     * A row is evaluated when the row below it arrives, i.e. just before it leaves the window, and its part
+     * numbers and gear ratios are handed to the callbacks right away.
+     */
+    static class SlidingWindow {
+        private final char[][] rows = new char[3][];
+        private final Contribution parts;
+        private final Contribution gears;
+        private int count;
+        private long partSum;
+        private long gearSum;
 
-        boolean isAdjacentToSymbol(int line, Number number) {
-            return hasSymbol(line, number.begin()-1, number.begin()) ||
-                   hasSymbol(line, number.end(), number.end()+1) ||
-                   hasSymbol(line-1, number.begin()-1, number.end()+1) ||
-                   hasSymbol(line+1, number.begin()-1, number.end()+1); 
+        SlidingWindow(Contribution parts, Contribution gears) {
+            this.parts = parts;
+            this.gears = gears;
         }
 
-        boolean hasSymbol(int line, int begin, int end) {
-            if (line < 0) {
-                return false;
+        void accept(String line) {
+            rows[count % 3] = line.toCharArray();
+            count++;
+            if (count >= 2) {
+                evaluate(count - 2, count >= 3 ? rows[(count - 3) % 3] : null, rows[(count - 2) % 3], rows[(count - 1) % 3]);
             }
-            if (line >= lines.size()) {
-                return false;
-            }
-            var aLine = lines.get(line);
-            return aLine.hasSymbol(begin, end);
         }
-    }
 
-    static Pattern SYMBOLS = Pattern.compile("[!@#$%^&*()_+=_\\\\/,:;'\"?|{}<>\\-]");
-    
-    record Line(String line) {
-        public List<Number> numbers() {
-            List<Number> result = new ArrayList<>();
-            var matcher = Pattern.compile("\\d+").matcher(line);
-            while (matcher.find()) {
-                result.add(new Number(matcher.start(), matcher.end(), Integer.parseInt(matcher.group())));
+        void finish() {
+            if (count >= 1) {
+                evaluate(count - 1, count >= 2 ? rows[(count - 2) % 3] : null, rows[(count - 1) % 3], null);
             }
-            return result;
         }
 
-        public IntStream gearCandidates() {
-            var matcher = Pattern.compile("\\*").matcher(line);
-            var result = IntStream.builder();
-            while (matcher.find()) {
-                result.add(matcher.start());
+        long partSum() {
+            return partSum;
+        }
+
+        long gearSum() {
+            return gearSum;
+        }
+
+        private void evaluate(int row, char[] above, char[] current, char[] below) {
+            for (int col = 0; col < current.length; col++) {
+                var c = current[col];
+                if (isDigit(current, col)) {
+                    var begin = col;
+                    var value = 0;
+                    while (isDigit(current, col)) {
+                        value = value * 10 + current[col++] - '0';
+                    }
+                    if (hasSymbol(above, begin - 1, col) || hasSymbol(current, begin - 1, col) || hasSymbol(below, begin - 1, col)) {
+                        partSum += value;
+                        parts.emit(row, value);
+                    }
+                    col--;
+                } else if (c == '*') {
+                    evaluateGear(row, col, above, current, below);
+                }
             }
-            return result.build();
         }
 
-        public Stream<Number> adjacentNumbers(int index) {
-            return numbers().stream().filter(n -> n.adjacentTo(index));
+        private void evaluateGear(int row, int col, char[]... neighbours) {
+            var count = 0;
+            var ratio = 1L;
+            for (var line : neighbours) {
+                if (line == null) {
+                    continue;
+                }
+                if (isDigit(line, col)) {
+                    count++;
+                    ratio *= numberAt(line, col);
+                } else {
+                    if (isDigit(line, col - 1)) {
+                        count++;
+                        ratio *= numberAt(line, col - 1);
+                    }
+                    if (isDigit(line, col + 1)) {
+                        count++;
+                        ratio *= numberAt(line, col + 1);
+                    }
+                }
+            }
+            if (count == 2) {
+                gearSum += ratio;
+                gears.emit(row, ratio);
+            }
         }
 
-        public boolean hasSymbol(int begin, int end) {
-            if (begin < 0) {
-                begin = 0;
+        /**
+         * Symbol anywhere in columns {@code [begin, end]} of the line.
+         */
+        private static boolean hasSymbol(char[] line, int begin, int end) {
+            if (line == null) {
+                return false;
             }
-            if (end > line.length()) {
-                end = line.length();
+            for (int col = Math.max(begin, 0); col <= Math.min(end, line.length - 1); col++) {
+                if (isSymbol(line[col])) {
+                    return true;
+                }
             }
-            return SYMBOLS.matcher(line.substring(begin, end)).find();
+            return false;
+        }
+
+        private static boolean isDigit(char[] line, int col) {
+            return col >= 0 && col < line.length && line[col] >= '0' && line[col] <= '9';
         }
-    }
 
-    record Number(int begin, int end, int value) {
-        boolean adjacentTo(int index) {
-            return index >= begin-1 && index <= end;
+        private static int numberAt(char[] line, int col) {
+            while (isDigit(line, col - 1)) {
+                col--;
+            }
+            var value = 0;
+            while (isDigit(line, col)) {
+                value = value * 10 + line[col++] - '0';
+            }
+            return value;
         }
     }
 }
@@ -5,8 +5,6 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 import java.util.stream.*;
 
 import static java.lang.System.*;
@@ -30,38 +28,103 @@ import static java.lang.System.*;
 public class lottery {
 
     public static void main(String... args) throws IOException {
-        var cards = Files.lines(Path.of("cards2.txt")).map(lottery::parse).collect(Collectors.toList());
-        var score = cards.stream().mapToInt(Card::score).sum();
+        var cards = parseAll(Files.readAllBytes(Path.of("cards2.txt")));
+        var score = cards.parallelStream().mapToInt(Card::score).sum();
         out.println(score);
-        out.println(withRepeats(cards));
+        out.println(withRepeatsLong(cards));
     }
 
     static int withRepeats(List<Card> cards) {
-        var boosts = new int[cards.size()];
-        Arrays.fill(boosts,1);
-        for(int i=0; i<cards.size(); i++) {
-          for(int j=i+1; j <= i+cards.get(i).wins(); j++) {
-             boosts[j]+=boosts[i];
-          }
+        return Math.toIntExact(withRepeatsLong(cards));
+    }
+
+    /**
+     * Each card adds its copy count to the following {@code wins} cards. Instead of adding to each of them,
+     * the range add is recorded in a difference array at its start and one past its end, and a running sum
+     * recovers the copy count of each card in one pass.
+     */
+    static long withRepeatsLong(List<Card> cards) {
+        var n = cards.size();
+        var delta = new long[n + 1];
+        var boost = 0L;
+        var total = 0L;
+        for (int i = 0; i < n; i++) {
+            boost += delta[i];
+            var copies = 1 + boost;
+            total += copies;
+            var end = Math.min(i + cards.get(i).wins(), n - 1);
+            if (end > i) {
+                delta[i + 1] += copies;
+                delta[end + 1] -= copies;
+            }
         }
-        return IntStream.of(boosts).sum();
+        return total;
     }
 
-    record Card(Set<Integer> winningNumbers, Set<Integer> numbers) {
-        int wins() {
-            return (int)winningNumbers.stream().filter(numbers::contains).count();
+    /**
+     * Numbers are bounded to 0-99, so each side is a 128 bit mask in a {@code long[2]}, and the number
+     * of matches is computed once from the popcount of their intersection.
+     */
+    record Card(long[] winningNumbers, long[] numbers, int wins) {
+        Card(long[] winningNumbers, long[] numbers) {
+            this(winningNumbers, numbers,
+                Long.bitCount(winningNumbers[0] & numbers[0]) + Long.bitCount(winningNumbers[1] & numbers[1]));
         }
+
         int score() {
-            return 1 << (winningNumbers.stream().filter(numbers::contains).count()-1);
+            return wins == 0 ? 0 : 1 << (wins - 1);
         }
     }
 
     static Card parse(String input) {
-        var parts = Pattern.compile("Card\\s+\\d+: ([\\d ]+)\\s+\\|\\s+([\\d ]+)").matcher(input).results().findFirst().orElseThrow(() -> new IllegalArgumentException("No match for line "+input));
-        var winningNumbers = Stream.of(parts.group(1).split("\\s+")).filter(r->!r.isBlank()).map(r -> Integer.parseInt(r)).collect(Collectors.toSet());
-        var numbers = Stream.of(parts.group(2).split("\\s+")).map(r -> Integer.parseInt(r)).collect(Collectors.toSet());
-        return new Card(winningNumbers, numbers);
+        var bytes = input.getBytes();
+        return parse(bytes, 0, bytes.length);
     }
 
+    /**
+     * Parses {@code Card n: winning... | numbers...} from {@code line[from, to)} by a single byte walk.
+     */
+    static Card parse(byte[] line, int from, int to) {
+        var sides = new long[][] { new long[2], new long[2] };
+        var side = 0;
+        var i = from;
+        while (i < to && line[i] != ':') {
+            i++;
+        }
+        if (i == to) {
+            throw new IllegalArgumentException("No match for line " + new String(line, from, to - from));
+        }
+        while (++i < to) {
+            var b = line[i];
+            if (b == '|') {
+                side = 1;
+            } else if (b >= '0' && b <= '9') {
+                var number = 0;
+                while (i < to && line[i] >= '0' && line[i] <= '9') {
+                    number = number * 10 + line[i++] - '0';
+                }
+                if (number > 127) {
+                    throw new IllegalArgumentException("Number %d out of range in line %s".formatted(number, new String(line, from, to - from)));
+                }
+                sides[side][number >>> 6] |= 1L << number;
+                i--;
+            }
+        }
+        return new Card(sides[0], sides[1]);
+    }
 
+    static List<Card> parseAll(byte[] input) {
+        var cards = new ArrayList<Card>();
+        var start = 0;
+        for (int i = 0; i <= input.length; i++) {
+            if (i == input.length || input[i] == '\n') {
+                var end = i > start && input[i - 1] == '\r' ? i - 1 : i;
+                if (end > start) {
+                    cards.add(parse(input, start, end));
+                }
+                start = i + 1;
+            }
+        }
+        return cards;
+    }
 }
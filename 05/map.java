@@ -5,11 +5,16 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
 
@@ -105,15 +110,94 @@ import static java.lang.System.*;
  */
 public class map {
 
+    static final List<String> STAGES = List.of("seed-to-soil", "soil-to-fertilizer", "fertilizer-to-water",
+        "water-to-light", "light-to-temperature", "temperature-to-humidity", "humidity-to-location");
+
+    /**
+     * Usage: map [intervals|composed|brute|reverse|bench] [lines]
+     * <p>
+     * The almanac is loaded by {@link AlmanacReader}, or by the line based {@link Parser} when {@code lines} is given.
+     * <p>
+     * {@code intervals} (default) pushes seed intervals through the stages one by one, {@code composed}
+     * resolves them against all stages folded into one mapping, see {@link Mapping#andThen(Mapping)}.
+     * {@code brute} converts every single seed in parallel as a cross-check, see {@link SeedSweep}.
+     * {@code reverse} searches from the lowest locations back to the seeds, see {@link LocationFirst},
+     * and {@code bench} times it against the forward solvers.
+     */
     public static void main(String... args) throws IOException {
-        var parser = new Parser();
-        parser.state = ParserState.SEED_INTERVALS;
-        Files.lines(Path.of("input2.txt")).forEach(parser::parse);
-        parser.parse("");
-        var result = minimalLocationRanges(parser);
+        var mode = args.length > 0 ? args[0] : "intervals";
+        Parser parser;
+        if (args.length > 1 && args[1].equals("lines")) {
+            parser = new Parser();
+            parser.state = ParserState.SEED_INTERVALS;
+            Files.lines(Path.of("input2.txt")).forEach(parser::parse);
+            parser.parse("");
+        } else {
+            parser = AlmanacReader.read(Files.readAllBytes(Path.of("input2.txt")));
+        }
+        var result = switch (mode) {
+            case "intervals" -> minimalLocationRanges(parser);
+            case "composed" -> minimalLocationComposed(parser);
+            case "brute" -> SeedSweep.minimalLocation(parser);
+            case "reverse" -> LocationFirst.minimalLocation(parser);
+            case "bench" -> benchmark(parser);
+            default -> throw new IllegalArgumentException("Unknown mode " + mode);
+        };
         out.println(result);
     }
 
+    static long benchmark(Parser parser) {
+        var overlapping = overlappingDestinations();
+        var expected = minimalLocationRanges(overlapping);
+        var actual = LocationFirst.minimalLocation(overlapping);
+        if (expected != actual) {
+            throw new IllegalStateException("Overlapping destinations: intervals %d, reverse %d".formatted(expected, actual));
+        }
+        var result = 0L;
+        for (int round = 0; round < 5; round++) {
+            var start = nanoTime();
+            parser.mappedIntervals = null;
+            var forward = minimalLocationRanges(parser);
+            var forwardTime = nanoTime() - start;
+            start = nanoTime();
+            var composed = minimalLocationComposed(parser);
+            var composedTime = nanoTime() - start;
+            start = nanoTime();
+            var reverse = LocationFirst.minimalLocation(parser);
+            var reverseTime = nanoTime() - start;
+            if (forward != reverse || forward != composed) {
+                throw new IllegalStateException("Results differ: intervals %d, composed %d, reverse %d".formatted(forward, composed, reverse));
+            }
+            out.printf("intervals %d us, composed %d us, reverse %d us\n", forwardTime / 1000, composedTime / 1000, reverseTime / 1000);
+            result = reverse;
+        }
+        return result;
+    }
+
+    /**
+     * Seed 107 through identity stages and a {@code humidity-to-location} stage whose destinations
+     * {@code [0, 20)}, {@code [5, 6)} and {@code [10, 12)} overlap. It ends up at location 7.
+     */
+    static Parser overlappingDestinations() {
+        var parser = new Parser();
+        parser.seedIntervals = List.of(new Interval(107, 1));
+        for (var stage : STAGES) {
+            parser.mappingByName.put(stage, new Mapping(stage, List.of()));
+        }
+        var last = STAGES.get(STAGES.size() - 1);
+        parser.mappingByName.put(last, new Mapping(last,
+            List.of(new MapRange(0, 100, 20), new MapRange(5, 200, 1), new MapRange(10, 300, 2))));
+        return parser;
+    }
+
+    static Mapping seedToLocation(Parser parser) {
+        return STAGES.stream().map(parser::mapping).reduce(Mapping::andThen).orElseThrow();
+    }
+
+    private static long minimalLocationComposed(Parser parser) {
+        return seedToLocation(parser).minimalDestination(parser.seedIntervals);
+    }
+
     private static long minimalLocation(Parser parser) {
         return parser.seeds.stream()
                 .mapToLong(parser.mapping("seed-to-soil")::convert)
@@ -248,56 +332,599 @@ public class map {
         }
     }
 
-    record Mapping(String name, List<MapRange> ranges) {
+    /**
+     * Byte oriented almanac loader. Range lines are parsed straight from the input bytes into primitive
+     * {@code dest, source, length} columns per stage, which are sorted in place by source and become the
+     * columns of the {@link Mapping}. Seeds are read into a {@code long[]} and kept both as interval pairs
+     * and as single seeds.
+     */
+    static class AlmanacReader {
+        private final byte[] input;
+        private int position;
+
+        private AlmanacReader(byte[] input) {
+            this.input = input;
+        }
+
+        static Parser read(byte[] input) {
+            var reader = new AlmanacReader(input);
+            var parser = new Parser();
+            reader.skipPast(':');
+            var seeds = reader.numbers();
+            parser.seeds = Arrays.stream(seeds).boxed().toList();
+            parser.seedIntervals = new ArrayList<>();
+            for (int i = 0; i + 1 < seeds.length; i += 2) {
+                parser.seedIntervals.add(new Interval(seeds[i], seeds[i + 1]));
+            }
+            while (reader.skipBlank()) {
+                var titleStart = reader.position;
+                while (input[reader.position] != ' ' && input[reader.position] != ':') {
+                    reader.position++;
+                }
+                var name = new String(input, titleStart, reader.position - titleStart);
+                reader.skipPast(':');
+                var mapping = reader.mapping(name);
+                parser.mappings.add(mapping);
+                parser.mappingByName.put(name, mapping);
+            }
+            return parser;
+        }
+
+        private void skipPast(char c) {
+            while (position < input.length && input[position] != c) {
+                position++;
+            }
+            position++;
+        }
+
+        /**
+         * Skips whitespace, returns false at the end of input.
+         */
+        private boolean skipBlank() {
+            while (position < input.length && input[position] <= ' ') {
+                position++;
+            }
+            return position < input.length;
+        }
+
+        /**
+         * Reads {@code dest source length} lines into three columns, up to the next line that does not start
+         * with a digit.
+         */
+        private Mapping mapping(String name) {
+            var dest = new long[16];
+            var source = new long[16];
+            var length = new long[16];
+            var size = 0;
+            while (skipBlank() && isDigit(input[position])) {
+                if (size == dest.length) {
+                    dest = Arrays.copyOf(dest, size * 2);
+                    source = Arrays.copyOf(source, size * 2);
+                    length = Arrays.copyOf(length, size * 2);
+                }
+                dest[size] = number();
+                source[size] = number();
+                length[size] = number();
+                size++;
+            }
+            dest = Arrays.copyOf(dest, size);
+            source = Arrays.copyOf(source, size);
+            length = Arrays.copyOf(length, size);
+            sortBySource(dest, source, length, 0, size - 1);
+            return Mapping.ofSorted(name, dest, source, length);
+        }
+
+        /**
+         * Reads the next number on the current line.
+         */
+        private long number() {
+            while (position < input.length && input[position] == ' ') {
+                position++;
+            }
+            if (position == input.length || !isDigit(input[position])) {
+                throw new IllegalArgumentException("Expected a number at byte %d".formatted(position));
+            }
+            var value = 0L;
+            while (position < input.length && isDigit(input[position])) {
+                value = value * 10 + input[position++] - '0';
+            }
+            return value;
+        }
+
+        /**
+         * Reads numbers up to the next line that does not start with a digit.
+         */
+        private long[] numbers() {
+            var numbers = new long[64];
+            var count = 0;
+            while (position < input.length) {
+                var b = input[position];
+                if (b >= '0' && b <= '9') {
+                    var value = 0L;
+                    while (position < input.length && input[position] >= '0' && input[position] <= '9') {
+                        value = value * 10 + input[position++] - '0';
+                    }
+                    if (count == numbers.length) {
+                        numbers = Arrays.copyOf(numbers, count * 2);
+                    }
+                    numbers[count++] = value;
+                } else if (b == '\n' && (position + 1 >= input.length || !isDigit(input[position + 1]))) {
+                    break;
+                } else {
+                    position++;
+                }
+            }
+            return Arrays.copyOf(numbers, count);
+        }
+
+        private static boolean isDigit(byte b) {
+            return b >= '0' && b <= '9';
+        }
+
+        /**
+         * Quicksort of the three columns by {@code source}, swapping all of them together.
+         */
+        static void sortBySource(long[] dest, long[] source, long[] length, int low, int high) {
+            while (low < high) {
+                var pivot = source[(low + high) >>> 1];
+                int i = low, j = high;
+                while (i <= j) {
+                    while (source[i] < pivot) {
+                        i++;
+                    }
+                    while (source[j] > pivot) {
+                        j--;
+                    }
+                    if (i <= j) {
+                        swap(dest, i, j);
+                        swap(source, i, j);
+                        swap(length, i, j);
+                        i++;
+                        j--;
+                    }
+                }
+                if (j - low < high - i) {
+                    sortBySource(dest, source, length, low, j);
+                    low = i;
+                } else {
+                    sortBySource(dest, source, length, i, high);
+                    high = j;
+                }
+            }
+        }
+
+        private static void swap(long[] array, int i, int j) {
+            var t = array[i];
+            array[i] = array[j];
+            array[j] = t;
+        }
+    }
+
+    /**
+     * Ranges of one almanac stage as {@code long[]} columns sorted by source start, so that lookups binary
+     * search and convert without touching {@link MapRange} objects. Ranges of a stage do not overlap.
+     */
+    record Mapping(String name, long[] destStarts, long[] sourceStarts, long[] sourceEnds) {
+        Mapping(String name, List<MapRange> ranges) {
+            this(name, sortBySource(ranges));
+        }
+
+        private Mapping(String name, MapRange[] sorted) {
+            this(name, Stream.of(sorted).mapToLong(MapRange::destStart).toArray(),
+                Stream.of(sorted).mapToLong(MapRange::sourceStart).toArray(),
+                Stream.of(sorted).mapToLong(MapRange::sourceEnd).toArray());
+        }
+
+        /**
+         * Mapping over columns already sorted by {@code source}. The {@code length} column is reused for the ends.
+         */
+        static Mapping ofSorted(String name, long[] dest, long[] source, long[] length) {
+            for (int i = 0; i < source.length; i++) {
+                length[i] += source[i];
+            }
+            return new Mapping(name, dest, source, length);
+        }
+
+        /**
+         * The ranges as objects, for the code that reorders or inspects them rather than looking values up.
+         */
+        List<MapRange> ranges() {
+            var ranges = new ArrayList<MapRange>(sourceStarts.length);
+            for (int i = 0; i < sourceStarts.length; i++) {
+                ranges.add(new MapRange(destStarts[i], sourceStarts[i], sourceEnds[i] - sourceStarts[i]));
+            }
+            return ranges;
+        }
+
+        private long convert(int i, long source) {
+            return destStarts[i] + (source - sourceStarts[i]);
+        }
+
+        private static MapRange[] sortBySource(List<MapRange> ranges) {
+            var sorted = ranges.toArray(MapRange[]::new);
+            Arrays.sort(sorted, Comparator.comparingLong(MapRange::sourceStart));
+            return sorted;
+        }
+
+        /**
+         * Index of the first range ending after {@code source}, or the number of ranges when there is none.
+         */
+        int firstEndingAfter(long source) {
+            int low = 0, high = sourceEnds.length;
+            while (low < high) {
+                var mid = (low + high) >>> 1;
+                if (sourceEnds[mid] <= source) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
 
         public long convert(long source) {
-            return ranges.stream()
-                .filter(range -> range.contains(source))
-                .findFirst()
-                .stream().mapToLong(range -> range.convert(source))
-                .findAny().orElse(source);
+            var i = firstEndingAfter(source);
+            if (i < sourceStarts.length && sourceStarts[i] <= source) {
+                return convert(i, source);
+            }
+            return source;
         }
 
         public long reverse(Long dest) {
-            return ranges.stream()
-                .filter(range -> range.containsReverse(dest))
-                .findFirst()
-                .stream().mapToLong(range -> range.reverse(dest))
-                .findAny().orElse(dest);
+            for (int i = 0; i < destStarts.length; i++) {
+                if (dest >= destStarts[i] && dest < destStarts[i] + (sourceEnds[i] - sourceStarts[i])) {
+                    return sourceStarts[i] + (dest - destStarts[i]);
+                }
+            }
+            return dest;
+        }
+
+        /**
+         * Single mapping equivalent to applying this one and then {@code next}. Every piece of the whole
+         * domain, including the identity gaps between ranges, is pushed through {@code next}, and the source
+         * sub-interval of each resulting piece becomes a range of the composition. Identity pieces are dropped
+         * and neighbouring pieces with the same offset are merged, so the result stays a sorted list of breakpoints.
+         */
+        Mapping andThen(Mapping next) {
+            var composed = new ArrayList<MapRange>();
+            var source = 0L;
+            for (var piece : map(new Interval(0, Long.MAX_VALUE))) {
+                for (var mapped : next.map(piece)) {
+                    var dest = mapped.start();
+                    var length = mapped.length();
+                    if (dest != source) {
+                        var last = composed.isEmpty() ? null : composed.get(composed.size() - 1);
+                        if (last != null && last.sourceEnd() == source && last.convert(source) == dest) {
+                            composed.set(composed.size() - 1, new MapRange(last.destStart(), last.sourceStart(), last.length() + length));
+                        } else {
+                            composed.add(new MapRange(dest, source, length));
+                        }
+                    }
+                    source += length;
+                }
+            }
+            return new Mapping(name.substring(0, name.indexOf("-to-")) + next.name.substring(next.name.indexOf("-to-")), composed);
+        }
+
+        /**
+         * Lowest destination of any value in {@code sources}. The intervals are sorted by start, so the
+         * index of the first relevant range only moves forward and all of them are resolved in one merge walk.
+         */
+        long minimalDestination(List<Interval> sources) {
+            var sorted = sources.stream().sorted(Comparator.comparingLong(Interval::start)).toList();
+            var min = Long.MAX_VALUE;
+            var i = 0;
+            for (var interval : sorted) {
+                var current = interval.start();
+                var end = interval.end();
+                while (i < sourceEnds.length && sourceEnds[i] <= current) {
+                    i++;
+                }
+                for (int j = i; j < sourceStarts.length && current < end; j++) {
+                    if (sourceStarts[j] >= end) {
+                        break;
+                    }
+                    if (current < sourceStarts[j]) {
+                        // identity gap before the range, its lowest value is where it starts
+                        min = Math.min(min, current);
+                        current = sourceStarts[j];
+                    }
+                    min = Math.min(min, convert(j, current));
+                    current = Math.min(end, sourceEnds[j]);
+                }
+                if (current < end) {
+                    min = Math.min(min, current);
+                }
+            }
+            return min;
         }
 
+        /**
+         * Splits {@code source} into mapped pieces, walking the ranges in order starting from the first one
+         * that ends inside the interval. Gaps between ranges map with identity.
+         */
         public List<Interval> map(Interval source) {
             var result = new ArrayList<Interval>();
-            var currentStart = source.start;
-            var currentEnd = source.end();
-            while (currentStart < source.end()) {
-                // find first range that overlaps with current interval
-                var start = currentStart;
-                var range = ranges.stream()
-                    .filter(r -> r.overlaps(start, currentEnd))
-                    .findFirst();
-                if (range.isEmpty()) {
-                    // no range found, therefore entire region maps with identity
-                    result.add(new Interval(currentStart, currentEnd - currentStart));
+            var current = source.start();
+            var end = source.end();
+            for (int i = firstEndingAfter(current); i < sourceStarts.length && current < end; i++) {
+                if (sourceStarts[i] >= end) {
                     break;
                 }
-                var r = range.get();
-                // map the part of the interval that is before the range
-                if (currentStart < r.sourceStart) {
-                    result.add(new Interval(currentStart, r.sourceStart - currentStart));
-                    currentStart = r.sourceStart;
+                if (current < sourceStarts[i]) {
+                    result.add(new Interval(current, sourceStarts[i] - current));
+                    current = sourceStarts[i];
                 }
-                if (source.end() <= r.sourceEnd()) {
-                    // entire interval is mapped by the range
-                    result.add(new Interval(r.convert(currentStart), source.end() - currentStart));
+                var pieceEnd = Math.min(end, sourceEnds[i]);
+                result.add(new Interval(convert(i, current), pieceEnd - current));
+                current = pieceEnd;
+            }
+            if (current < end) {
+                result.add(new Interval(current, end - current));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Source values {@code [start, start + length)} that end up at locations {@code [location, location + length)}.
+     */
+    record Preimage(long start, long length, long location) {
+        long end() {
+            return start + length;
+        }
+    }
+
+    /**
+     * Ranges of a mapping sorted by destination, for finding all sources of a destination interval.
+     * Destinations of different ranges may overlap, so {@code maxDestEnds} holds the running maximum of the
+     * destination ends, which stays sorted and can be binary searched even when a range ends before its predecessor.
+     */
+    record ReverseIndex(Mapping mapping, MapRange[] byDest, long[] destStarts, long[] maxDestEnds) {
+        static ReverseIndex of(Mapping mapping) {
+            var byDest = mapping.ranges().toArray(MapRange[]::new);
+            Arrays.sort(byDest, Comparator.comparingLong(MapRange::destStart));
+            var maxDestEnds = new long[byDest.length];
+            for (int i = 0; i < byDest.length; i++) {
+                var destEnd = byDest[i].destStart() + byDest[i].length();
+                maxDestEnds[i] = i > 0 ? Math.max(maxDestEnds[i - 1], destEnd) : destEnd;
+            }
+            return new ReverseIndex(mapping, byDest, Stream.of(byDest).mapToLong(MapRange::destStart).toArray(), maxDestEnds);
+        }
+
+        /**
+         * All sources mapping into {@code dest}: the parts of it not covered by any source range map to
+         * themselves, and each range whose destination overlaps it contributes the reversed overlap.
+         */
+        void reverse(Preimage dest, List<Preimage> result) {
+            var sourceStarts = mapping.sourceStarts();
+            var sourceEnds = mapping.sourceEnds();
+            var current = dest.start();
+            var end = dest.end();
+            for (int i = mapping.firstEndingAfter(current); i < sourceStarts.length && current < end; i++) {
+                if (sourceStarts[i] >= end) {
                     break;
                 }
-                // map the part of the interval that is mapped by the range
-                var mappedLength = r.sourceEnd() - currentStart;
-                result.add(new Interval(r.convert(currentStart), mappedLength));
-                currentStart += mappedLength;
+                if (current < sourceStarts[i]) {
+                    result.add(new Preimage(current, sourceStarts[i] - current, dest.location() + current - dest.start()));
+                }
+                current = Math.min(end, sourceEnds[i]);
             }
-            return result;
+            if (current < end) {
+                result.add(new Preimage(current, end - current, dest.location() + current - dest.start()));
+            }
+            for (int i = firstEndingAfter(dest.start()); i < byDest.length && destStarts[i] < end; i++) {
+                var from = Math.max(dest.start(), destStarts[i]);
+                var to = Math.min(end, destStarts[i] + byDest[i].length());
+                if (from >= to) {
+                    // ends before dest, only an earlier range reached this far
+                    continue;
+                }
+                result.add(new Preimage(byDest[i].reverse(from), to - from, dest.location() + from - dest.start()));
+            }
+        }
+
+        /**
+         * Index of the first range whose running maximum end lies beyond {@code dest}. No range before it reaches {@code dest}.
+         */
+        private int firstEndingAfter(long dest) {
+            int low = 0, high = maxDestEnds.length;
+            while (low < high) {
+                var mid = (low + high) >>> 1;
+                if (maxDestEnds[mid] <= dest) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * Location-first search. The location axis is cut at the breakpoints of {@code humidity-to-location} and the
+     * segments are visited from the lowest up. Each segment is reversed through all stages into seed space and
+     * intersected with the seed intervals. The first segment with a hit holds the minimum, so for sparse seed sets
+     * only a few segments are ever reversed.
+     */
+    static class LocationFirst {
+        static long minimalLocation(Parser parser) {
+            var indexes = STAGES.stream().map(parser::mapping).map(ReverseIndex::of).toList();
+            var seeds = merge(parser.seedIntervals);
+            var last = parser.mapping(STAGES.get(STAGES.size() - 1));
+            var breakpoints = new java.util.TreeSet<Long>();
+            breakpoints.add(0L);
+            for (var range : last.ranges()) {
+                breakpoints.add(range.destStart());
+                breakpoints.add(range.destStart() + range.length());
+                breakpoints.add(range.sourceStart());
+                breakpoints.add(range.sourceEnd());
+            }
+            breakpoints.add(Long.MAX_VALUE);
+            Long from = null;
+            for (var to : breakpoints) {
+                if (from != null) {
+                    var pieces = List.of(new Preimage(from, to - from, from));
+                    for (int stage = indexes.size() - 1; stage >= 0; stage--) {
+                        var sources = new ArrayList<Preimage>();
+                        for (var piece : pieces) {
+                            indexes.get(stage).reverse(piece, sources);
+                        }
+                        pieces = sources;
+                    }
+                    var min = lowestHit(pieces, seeds);
+                    if (min != Long.MAX_VALUE) {
+                        return min;
+                    }
+                }
+                from = to;
+            }
+            throw new IllegalStateException("No solution found");
+        }
+
+        /**
+         * Seed intervals sorted and with overlapping ones joined.
+         */
+        static List<Interval> merge(List<Interval> intervals) {
+            var merged = new ArrayList<Interval>();
+            for (var interval : intervals.stream().sorted(Comparator.comparingLong(Interval::start)).toList()) {
+                var last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+                if (last != null && interval.start() <= last.end()) {
+                    merged.set(merged.size() - 1, new Interval(last.start(), Math.max(last.end(), interval.end()) - last.start()));
+                } else {
+                    merged.add(interval);
+                }
+            }
+            return merged;
+        }
+
+        static long lowestHit(List<Preimage> pieces, List<Interval> seeds) {
+            var min = Long.MAX_VALUE;
+            for (var piece : pieces) {
+                int low = 0, high = seeds.size();
+                while (low < high) {
+                    var mid = (low + high) >>> 1;
+                    if (seeds.get(mid).end() <= piece.start()) {
+                        low = mid + 1;
+                    } else {
+                        high = mid;
+                    }
+                }
+                if (low < seeds.size() && seeds.get(low).start() < piece.end()) {
+                    var hit = Math.max(piece.start(), seeds.get(low).start());
+                    min = Math.min(min, piece.location() + hit - piece.start());
+                }
+            }
+            return min;
+        }
+    }
+
+    /**
+     * Ranges of a stage flattened into parallel arrays, with the conversion stored as an offset.
+     */
+    record RangeTable(long[] sourceStarts, long[] sourceEnds, long[] offsets) {
+        static RangeTable of(Mapping mapping) {
+            var offsets = new long[mapping.sourceStarts().length];
+            for (int i = 0; i < offsets.length; i++) {
+                offsets[i] = mapping.destStarts()[i] - mapping.sourceStarts()[i];
+            }
+            return new RangeTable(mapping.sourceStarts(), mapping.sourceEnds(), offsets);
+        }
+
+        /**
+         * Converts {@code values[0, count)} in place.
+         */
+        void convert(long[] values, int count) {
+            for (int k = 0; k < count; k++) {
+                var value = values[k];
+                int low = 0, high = sourceEnds.length;
+                while (low < high) {
+                    var mid = (low + high) >>> 1;
+                    if (sourceEnds[mid] <= value) {
+                        low = mid + 1;
+                    } else {
+                        high = mid;
+                    }
+                }
+                if (low < sourceStarts.length && sourceStarts[low] <= value) {
+                    values[k] = value + offsets[low];
+                }
+            }
+        }
+    }
+
+    /**
+     * Brute force conversion of every seed of the seed intervals. The intervals are split on the common
+     * fork-join pool, and each leaf converts its seeds in blocks, one stage at a time over the whole block,
+     * keeping a running minimum. Each worker thread adds the seeds it converted and the time it spent
+     * converting them to its {@link WorkerStats}, so the reported rate is per core, not per wall clock.
+     */
+    static class SeedSweep extends RecursiveTask<Long> {
+        static final int BLOCK = 4096;
+        static final long LEAF = 1 << 22;
+
+        private final RangeTable[] stages;
+        private final long start, end;
+        private final Map<String, WorkerStats> seedsPerWorker;
+
+        record WorkerStats(LongAdder seeds, LongAdder busyNanos) {
+            WorkerStats() {
+                this(new LongAdder(), new LongAdder());
+            }
+        }
+
+        SeedSweep(RangeTable[] stages, long start, long end, Map<String, WorkerStats> seedsPerWorker) {
+            this.stages = stages;
+            this.start = start;
+            this.end = end;
+            this.seedsPerWorker = seedsPerWorker;
+        }
+
+        static long minimalLocation(Parser parser) {
+            var stages = STAGES.stream().map(parser::mapping).map(RangeTable::of).toArray(RangeTable[]::new);
+            var seedsPerWorker = new ConcurrentHashMap<String, WorkerStats>();
+            var tasks = parser.seedIntervals.stream()
+                .map(i -> new SeedSweep(stages, i.start(), i.end(), seedsPerWorker))
+                .toList();
+            var min = ForkJoinPool.commonPool().submit(() -> RecursiveTask.invokeAll(tasks).stream()
+                .mapToLong(SeedSweep::join).min().orElseThrow(() -> new IllegalStateException("No solution found"))).join();
+            seedsPerWorker.forEach((worker, stats) -> {
+                var seeds = stats.seeds().sum();
+                var seconds = stats.busyNanos().sum() / 1e9;
+                out.printf("%s: %d seeds in %.3f s, %.1f M seeds/s\n", worker, seeds, seconds, seeds / 1e6 / seconds);
+            });
+            return min;
+        }
+
+        @Override
+        protected Long compute() {
+            if (end - start > LEAF) {
+                var middle = start + (end - start) / 2;
+                var left = new SeedSweep(stages, start, middle, seedsPerWorker);
+                left.fork();
+                var right = new SeedSweep(stages, middle, end, seedsPerWorker).compute();
+                return Math.min(left.join(), right);
+            }
+            var begin = nanoTime();
+            var block = new long[BLOCK];
+            var min = Long.MAX_VALUE;
+            for (var seed = start; seed < end; ) {
+                var count = (int) Math.min(BLOCK, end - seed);
+                for (int k = 0; k < count; k++) {
+                    block[k] = seed + k;
+                }
+                for (var stage : stages) {
+                    stage.convert(block, count);
+                }
+                for (int k = 0; k < count; k++) {
+                    min = Math.min(min, block[k]);
+                }
+                seed += count;
+            }
+            var stats = seedsPerWorker.computeIfAbsent(Thread.currentThread().getName(), k -> new WorkerStats());
+            stats.seeds().add(end - start);
+            stats.busyNanos().add(nanoTime() - begin);
+            return min;
         }
     }
 
@@ -1,6 +1,7 @@
 ///usr/bin/env jbang "$0" "$@" ; exit $?
 
 
+import java.math.BigInteger;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -11,17 +12,81 @@ import static java.lang.System.*;
 
 public class races {
 
+    /**
+     * Usage: races [batch]
+     * <p>
+     * {@code batch} reads every Time/Distance line into columns and evaluates them with {@link #numberOfOptions(long[], long[], long[])}.
+     */
     public static void main(String... args) throws Exception {
+        if (args.length > 0 && args[0].equals("batch")) {
+            var columns = parseColumns(Files.readAllLines(Path.of("input4.txt")));
+            var counts = new long[columns[0].length];
+            numberOfOptions(columns[0], columns[1], counts);
+            out.println(product(counts));
+            return;
+        }
         var races = parse(Files.lines(Path.of("input4.txt")));
         out.println(races.stream().mapToLong(Race::numberOfOptions).reduce(1, (a, b) -> a * b));
     }
 
+    /**
+     * Largest time for which time^2 and every x * (time - x) still fit in a long.
+     */
+    static final long BATCH_LIMIT = 3_037_000_499L;
+
+    /**
+     * Largest distance for which {@code 4 * distance} still fits in a long.
+     */
+    static final long DISTANCE_LIMIT = Long.MAX_VALUE >> 2;
+
+    /**
+     * Fills {@code counts} with the number of winning hold times of each race. The loop body is straight
+     * line code without branches or allocation, so the JIT is free to vectorize it: the square root only
+     * gives a guess {@code g} at most three below the lowest winning time, and the three comparisons after it
+     * count the losing times up to the first winning one. Races that cannot be won at all, not even by holding
+     * for half the time, are masked to 0. Races longer than {@link #BATCH_LIMIT} or with distances above
+     * {@link #DISTANCE_LIMIT}, where {@code 4 * d} would overflow, are redone with {@link Race#numberOfOptions()} afterwards.
+     */
+    static void numberOfOptions(long[] times, long[] distances, long[] counts) {
+        var large = false;
+        for (int i = 0; i < times.length; i++) {
+            var t = Math.min(times[i], BATCH_LIMIT);
+            var d = Math.min(distances[i], DISTANCE_LIMIT);
+            var half = t / 2;
+            var winnable = half * (t - half) > d ? 1 : 0;
+            var root = (long) Math.sqrt((double) (t * t - 4 * d));
+            var g = Math.max(0, (t - root) / 2 - 1);
+            var miss0 = g * (t - g) > d ? 0 : 1;
+            var miss1 = miss0 & ((g + 1) * (t - g - 1) > d ? 0 : 1);
+            var miss2 = miss1 & ((g + 2) * (t - g - 2) > d ? 0 : 1);
+            var low = g + miss0 + miss1 + miss2;
+            counts[i] = winnable * Math.max(0, t - 2 * low + 1);
+            large |= times[i] > BATCH_LIMIT | distances[i] > DISTANCE_LIMIT;
+        }
+        if (large) {
+            for (int i = 0; i < times.length; i++) {
+                if (times[i] > BATCH_LIMIT || distances[i] > DISTANCE_LIMIT) {
+                    counts[i] = new Race(times[i], distances[i]).numberOfOptions();
+                }
+            }
+        }
+    }
+
+    static long product(long[] counts) {
+        var product = 1L;
+        for (var count : counts) {
+            product *= count;
+        }
+        return product;
+    }
+
 
-    record Race(double time, double distance) {
+    record Race(long time, long distance) {
         // valid solution satisfies the following equation:
         // x^2 - x*time + d < 0
         // we'll be looking for integer solutions of this
-        long numberOfOptions() {
+        long approximateNumberOfOptions() {
+            double time = this.time, distance = this.distance;
             double dis = Math.sqrt(time * time - 4 * distance);
             double root1 = (time - dis)/2;
             double root2 = (time + dis)/2;
@@ -35,6 +100,51 @@ public class races {
             }
             return (long)(high - low + 1);
         }
+
+        /**
+         * Exact count of hold times x with x * (time - x) > distance. The integer square root of the
+         * discriminant gives a first guess for the lowest winning x, which is then nudged with exact
+         * 128 bit comparisons. Winning times are symmetric around time / 2.
+         */
+        long numberOfOptions() {
+            var half = time / 2;
+            if (!wins(half)) {
+                return 0;
+            }
+            var low = Math.max(0, Math.min(half, (time - discriminantRoot()) / 2));
+            while (!wins(low)) {
+                low++;
+            }
+            while (low > 0 && wins(low - 1)) {
+                low--;
+            }
+            return time - 2 * low + 1;
+        }
+
+        boolean wins(long hold) {
+            var travel = time - hold;
+            var high = Math.multiplyHigh(hold, travel);
+            return high > 0 || (high == 0 && Long.compareUnsigned(hold * travel, distance) > 0);
+        }
+
+        /**
+         * floor(sqrt(time^2 - 4 * distance)), with {@link BigInteger} once time^2 does not fit a long.
+         */
+        long discriminantRoot() {
+            if (time <= BATCH_LIMIT) {
+                var discriminant = time * time - 4 * distance;
+                var root = (long) Math.sqrt(discriminant);
+                while (root * root > discriminant) {
+                    root--;
+                }
+                while (root < BATCH_LIMIT && (root + 1) * (root + 1) <= discriminant) {
+                    root++;
+                }
+                return root;
+            }
+            var t = BigInteger.valueOf(time);
+            return t.multiply(t).subtract(BigInteger.valueOf(distance).shiftLeft(2)).sqrt().longValueExact();
+        }
     }
 
     /**
@@ -50,13 +160,27 @@ public class races {
      *     The third race lasts 30 milliseconds. The record distance in this race is 200 millimeters.
      */
     static List<Race> parse(Stream<String> input) {
-        var lines = input.limit(O2).toArray(String[]::new);
-        var times = Stream.of(lines[0].split("(Time:)?\\s+")).filter(s -> !s.isBlank()).mapToDouble(Double::parseDouble).toArray();
-        var distances = Stream.of(lines[1].split("(Distance:)?\\s+")).filter(s -> !s.isBlank()).mapToDouble(Double::parseDouble).toArray();
+        var lines = input.limit(2).toArray(String[]::new);
+        var times = Stream.of(lines[0].split("(Time:)?\\s+")).filter(s -> !s.isBlank()).mapToLong(Long::parseLong).toArray();
+        var distances = Stream.of(lines[1].split("(Distance:)?\\s+")).filter(s -> !s.isBlank()).mapToLong(Long::parseLong).toArray();
         var result = new ArrayList<Race>(times.length);
         for(int i=0; i<times.length; i++) {
             result.add(new Race(times[i], distances[i]));
         }
         return result;
     }
+
+    /**
+     * Times and distances of all races in the input, read from every {@code Time:} and {@code Distance:} line.
+     */
+    static long[][] parseColumns(List<String> lines) {
+        var times = lines.stream().filter(l -> l.startsWith("Time:"))
+            .flatMap(l -> Stream.of(l.substring(5).trim().split("\\s+"))).mapToLong(Long::parseLong).toArray();
+        var distances = lines.stream().filter(l -> l.startsWith("Distance:"))
+            .flatMap(l -> Stream.of(l.substring(9).trim().split("\\s+"))).mapToLong(Long::parseLong).toArray();
+        if (times.length != distances.length) {
+            throw new IllegalArgumentException("%d times, but %d distances".formatted(times.length, distances.length));
+        }
+        return new long[][] { times, distances };
+    }
 }
@@ -0,0 +1,106 @@
+import java.util.Arrays;
+
+/**
+ * Camel Cards hand classification shared by {@code poker} and {@code poker2} via {@code //SOURCES}.
+ * <p>
+ * The type of a five card hand follows from the sum of squares of its label counts, which is different for
+ * every type: 25 five of a kind, 17 four of a kind, 13 full house, 11 three of a kind, 9 two pair, 7 one pair
+ * and 5 high card. So the histogram is folded into that sum while the cards are read, and the type is a lookup
+ * in {@link #TYPE_BY_SQUARES}. Wild cards are left out of the histogram and then added to the largest count.
+ */
+public class classifier {
+
+    static final int HIGH_CARD = 0, ONE_PAIR = 1, TWO_PAIR = 2, THREE_OF_A_KIND = 3, FULL_HOUSE = 4, FOUR_OF_A_KIND = 5, FIVE_OF_A_KIND = 6;
+
+    static final int[] TYPE_BY_SQUARES = new int[26];
+    static {
+        Arrays.fill(TYPE_BY_SQUARES, -1);
+        TYPE_BY_SQUARES[5] = HIGH_CARD;
+        TYPE_BY_SQUARES[7] = ONE_PAIR;
+        TYPE_BY_SQUARES[9] = TWO_PAIR;
+        TYPE_BY_SQUARES[11] = THREE_OF_A_KIND;
+        TYPE_BY_SQUARES[13] = FULL_HOUSE;
+        TYPE_BY_SQUARES[17] = FOUR_OF_A_KIND;
+        TYPE_BY_SQUARES[25] = FIVE_OF_A_KIND;
+    }
+
+    /**
+     * Label that joins whichever label helps the hand most, and counts as the weakest card in ties.
+     * {@link #NONE} has no wild card.
+     */
+    record JokerRule(char wild) {
+        static final JokerRule NONE = new JokerRule('\0');
+        static final JokerRule J_WILD = new JokerRule('J');
+
+        boolean isWild(char label) {
+            return label == wild;
+        }
+    }
+
+    static final String LABELS = "23456789TJQKA";
+
+    static final classifier STANDARD = new classifier(LABELS, JokerRule.NONE);
+    static final classifier JOKERS = new classifier(LABELS, JokerRule.J_WILD);
+
+    private final int[] rankOf = new int[128];
+    private final int wildRank;
+
+    /**
+     * @param labels all labels, weakest first
+     * @param rule which label, if any, is wild. It is moved to the bottom of the label order.
+     */
+    classifier(String labels, JokerRule rule) {
+        Arrays.fill(rankOf, -1);
+        var rank = 0;
+        if (labels.indexOf(rule.wild()) >= 0) {
+            rankOf[rule.wild()] = rank++;
+        }
+        for (var label : labels.toCharArray()) {
+            if (!rule.isWild(label)) {
+                rankOf[label] = rank++;
+            }
+        }
+        wildRank = labels.indexOf(rule.wild()) >= 0 ? 0 : -1;
+    }
+
+    /**
+     * Strength of a label in tie breaks, 0 for the weakest.
+     */
+    int rank(char label) {
+        var rank = label < rankOf.length ? rankOf[label] : -1;
+        if (rank < 0) {
+            throw new IllegalArgumentException("Unknown label " + label);
+        }
+        return rank;
+    }
+
+    /**
+     * Type of the hand from {@link #HIGH_CARD} to {@link #FIVE_OF_A_KIND}.
+     */
+    int type(CharSequence hand) {
+        return key(hand) >>> 20;
+    }
+
+    /**
+     * Hand encoded as one int that orders like the hand: type above five 4 bit card ranks, first card highest.
+     * The label counts are kept in a long, 3 bits per rank, so no histogram is allocated per hand.
+     */
+    int key(CharSequence hand) {
+        var counts = 0L;
+        int squares = 0, largest = 0, wilds = 0, key = 0;
+        for (int i = 0; i < 5; i++) {
+            var rank = rank(hand.charAt(i));
+            key = key << 4 | rank;
+            if (rank == wildRank) {
+                wilds++;
+                continue;
+            }
+            var count = (int) (counts >>> 3 * rank & 7) + 1;
+            counts += 1L << 3 * rank;
+            squares += 2 * count - 1;
+            largest = Math.max(largest, count);
+        }
+        squares += (largest + wilds) * (largest + wilds) - largest * largest;
+        return TYPE_BY_SQUARES[squares] << 20 | key;
+    }
+}
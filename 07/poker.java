@@ -1,4 +1,5 @@
 ///usr/bin/env jbang "$0" "$@" ; exit $?
+//SOURCES classifier.java
 
 import java.io.IOException;
 import java.nio.file.Files;
@@ -33,12 +34,24 @@ public class poker {
      * @param args
      */
     public static void main(String... args) throws IOException {
-        var hands = Files.lines(Paths.get("input1.txt")).map(poker::parse).sorted(
-                Comparator.comparing(Hand::score)
-                .thenComparing(Hand::hand, poker::compareLabel)).toList();
+        if (args.length > 0 && args[0].equals("score")) {
+            var hands = Files.lines(Paths.get("input1.txt")).map(poker::parse).sorted(
+                    Comparator.comparing(Hand::score)
+                    .thenComparing(Hand::hand, poker::compareLabel)).toList();
+            long result = 0;
+            for (int i = 1; i <= hands.size(); i++) {
+                result += (long) i * hands.get(i - 1).bid;
+            }
+            out.println(result);
+            return;
+        }
+        var records = Files.lines(Paths.get("input1.txt"))
+            .map(line -> line.split("\\s+"))
+            .mapToLong(parts -> (long) classifier.STANDARD.key(parts[0]) << 32 | Long.parseLong(parts[1]))
+            .sorted().toArray();
         long result = 0;
-        for (int i = 1; i <= hands.size(); i++) {
-            result += (long) i * hands.get(i - 1).bid;
+        for (int i = 0; i < records.length; i++) {
+            result += (i + 1) * (records[i] & 0xFFFFFFFFL);
         }
         out.println(result);
     }
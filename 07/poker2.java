@@ -1,11 +1,20 @@
 ///usr/bin/env jbang "$0" "$@" ; exit $?
+//SOURCES classifier.java
 
 import java.io.IOException;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.IntStream;
 
 import static java.lang.System.out;
 
@@ -33,14 +42,181 @@ public class poker2 {
      * @param args
      */
     public static void main(String... args) throws IOException {
-        Comparator<Hand> comparator = Comparator.comparing(Hand::score).thenComparing(Hand::hand, poker2::compareLabel);
-        var hands = Files.lines(Paths.get("input2.txt")).map(poker2::parse).sorted(comparator).toList();
+        if (args.length > 0 && args[0].equals("score")) {
+            Comparator<Hand> comparator = Comparator.comparing(Hand::score).thenComparing(Hand::hand, poker2::compareLabel);
+            var hands = Files.lines(Paths.get("input2.txt")).map(poker2::parse).sorted(comparator).toList();
 
-        long result = 0;
-        for (int i = 1; i <= hands.size(); i++) {
-            result += (long) i * hands.get(i - 1).bid;
+            long result = 0;
+            for (int i = 1; i <= hands.size(); i++) {
+                result += (long) i * hands.get(i - 1).bid;
+            }
+            out.println(result);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("external")) {
+            var runSize = args.length > 1 ? Integer.parseInt(args[1]) : ExternalSort.RUN_SIZE;
+            out.println(ExternalSort.winnings(Paths.get("input2.txt"), runSize));
+            return;
+        }
+        var records = Files.lines(Paths.get("input2.txt")).mapToLong(poker2::packedRecord).toArray();
+        out.println(winnings(records));
+    }
+
+    /**
+     * Winnings for hand files larger than the heap. Hands are read in runs of {@code runSize} lines, classified
+     * in parallel into packed records, sorted with {@link Arrays#parallelSort(long[], int, int)} and spilled
+     * to memory mapped temp files. A k-way merge over the runs then sums rank times bid in one streaming pass.
+     */
+    static class ExternalSort {
+        static final int RUN_SIZE = 1 << 22;
+
+        static long winnings(Path input, int runSize) throws IOException {
+            var runs = new ArrayList<Path>();
+            try {
+                try (var reader = Files.newBufferedReader(input)) {
+                    var lines = new String[runSize];
+                    var records = new long[runSize];
+                    while (true) {
+                        var count = 0;
+                        String line;
+                        while (count < runSize && (line = reader.readLine()) != null) {
+                            if (!line.isBlank()) {
+                                lines[count++] = line;
+                            }
+                        }
+                        if (count == 0) {
+                            break;
+                        }
+                        IntStream.range(0, count).parallel().forEach(i -> records[i] = packedRecord(lines[i]));
+                        Arrays.parallelSort(records, 0, count);
+                        runs.add(spill(records, count));
+                    }
+                }
+                return merge(runs);
+            } finally {
+                for (var run : runs) {
+                    Files.deleteIfExists(run);
+                }
+            }
+        }
+
+        static Path spill(long[] records, int count) throws IOException {
+            var file = Files.createTempFile("poker2-run", ".bin");
+            try (var channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) count * Long.BYTES).asLongBuffer().put(records, 0, count);
+            }
+            return file;
+        }
+
+        /**
+         * Merges the sorted runs through a binary min-heap of run indexes ordered by their next record.
+         */
+        static long merge(List<Path> files) throws IOException {
+            var runs = new LongBuffer[files.size()];
+            for (int i = 0; i < runs.length; i++) {
+                try (var channel = FileChannel.open(files.get(i), StandardOpenOption.READ)) {
+                    runs[i] = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).asLongBuffer();
+                }
+            }
+            var heads = new long[runs.length];
+            var heap = new int[runs.length];
+            var size = 0;
+            for (int i = 0; i < runs.length; i++) {
+                if (runs[i].hasRemaining()) {
+                    heads[i] = runs[i].get();
+                    heap[size] = i;
+                    siftUp(heap, heads, size++);
+                }
+            }
+            var rank = 0L;
+            var result = 0L;
+            while (size > 0) {
+                var run = heap[0];
+                result += ++rank * (heads[run] & 0xFFFFFFFFL);
+                if (runs[run].hasRemaining()) {
+                    heads[run] = runs[run].get();
+                } else {
+                    heap[0] = heap[--size];
+                }
+                siftDown(heap, heads, size);
+            }
+            return result;
+        }
+
+        private static void siftUp(int[] heap, long[] heads, int i) {
+            while (i > 0) {
+                var parent = (i - 1) / 2;
+                if (heads[heap[parent]] <= heads[heap[i]]) {
+                    break;
+                }
+                swap(heap, i, parent);
+                i = parent;
+            }
+        }
+
+        private static void siftDown(int[] heap, long[] heads, int size) {
+            var i = 0;
+            while (true) {
+                var smallest = i;
+                var left = 2 * i + 1;
+                if (left < size && heads[heap[left]] < heads[heap[smallest]]) {
+                    smallest = left;
+                }
+                if (left + 1 < size && heads[heap[left + 1]] < heads[heap[smallest]]) {
+                    smallest = left + 1;
+                }
+                if (smallest == i) {
+                    return;
+                }
+                swap(heap, i, smallest);
+                i = smallest;
+            }
+        }
+
+        private static void swap(int[] heap, int i, int j) {
+            var t = heap[i];
+            heap[i] = heap[j];
+            heap[j] = t;
+        }
+    }
+
+    /**
+     * {@code key << 32 | bid} with the key from {@link classifier#JOKERS}, parsed without splitting the line.
+     */
+    static long packedRecord(String line) {
+        var bid = 0L;
+        for (int i = 6; i < line.length(); i++) {
+            bid = bid * 10 + line.charAt(i) - '0';
+        }
+        return (long) classifier.JOKERS.key(line) << 32 | bid;
+    }
+
+    /**
+     * Sorts the packed records by key with an LSD radix sort, 8 bits of the 23 bit key per pass,
+     * and sums rank times bid.
+     */
+    static long winnings(long[] records) {
+        var buffer = new long[records.length];
+        for (int shift = 32; shift < 56; shift += 8) {
+            var offsets = new int[257];
+            for (var r : records) {
+                offsets[(int) (r >>> shift & 0xFF) + 1]++;
+            }
+            for (int i = 1; i < offsets.length; i++) {
+                offsets[i] += offsets[i - 1];
+            }
+            for (var r : records) {
+                buffer[offsets[(int) (r >>> shift & 0xFF)]++] = r;
+            }
+            var swap = records;
+            records = buffer;
+            buffer = swap;
+        }
+        var result = 0L;
+        for (int i = 0; i < records.length; i++) {
+            result += (i + 1) * (records[i] & 0xFFFFFFFFL);
         }
-        out.println(result);
+        return result;
     }
 
     static final String LABELS = "AKQT98765432J";
@@ -0,0 +1,115 @@
+///usr/bin/env jbang "$0" "$@" ; exit $?
+//DEPS org.openjdk.jmh:jmh-core:1.37
+//DEPS org.openjdk.jmh:jmh-generator-annprocess:1.37
+//SOURCES classifier.java poker.java poker2.java
+
+package bench;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Compares hand classification by {@link classifier} with the {@code Score} based classification of
+ * {@code poker} and {@code poker2}, over the hands of input2.txt.
+ * <p>
+ * JMH does not accept benchmarks in the default package, where the other scripts live, so this class sits in
+ * {@code bench} and reaches them through method handles. The handles are static finals, which the JIT inlines.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class pokerbench {
+
+    static final MethodHandle SCORE_STANDARD = scoreWeight("poker");
+    static final MethodHandle TABLE_STANDARD = classifierType("STANDARD");
+    static final MethodHandle SCORE_JOKERS = scoreWeight("poker2");
+    static final MethodHandle TABLE_JOKERS = classifierType("JOKERS");
+
+    String[] hands;
+
+    @Setup
+    public void load() throws IOException {
+        hands = Files.lines(Paths.get("input2.txt")).map(line -> line.substring(0, 5)).toArray(String[]::new);
+    }
+
+    @Benchmark
+    public int scoreStandard() throws Throwable {
+        var sum = 0;
+        for (var hand : hands) {
+            sum += (int) SCORE_STANDARD.invokeExact(hand);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int tableStandard() throws Throwable {
+        var sum = 0;
+        for (var hand : hands) {
+            sum += (int) TABLE_STANDARD.invokeExact(hand);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int scoreJokers() throws Throwable {
+        var sum = 0;
+        for (var hand : hands) {
+            sum += (int) SCORE_JOKERS.invokeExact(hand);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int tableJokers() throws Throwable {
+        var sum = 0;
+        for (var hand : hands) {
+            sum += (int) TABLE_JOKERS.invokeExact(hand);
+        }
+        return sum;
+    }
+
+    /**
+     * {@code (String) int} handle to {@code scoreHandAccordingToActualRules(hand).weight()} of the given program.
+     */
+    static MethodHandle scoreWeight(String program) {
+        try {
+            var owner = Class.forName(program);
+            var lookup = MethodHandles.privateLookupIn(owner, MethodHandles.lookup());
+            var scoreType = Class.forName(program + "$Score");
+            var score = lookup.findStatic(owner, "scoreHandAccordingToActualRules", MethodType.methodType(scoreType, String.class));
+            var weight = lookup.findVirtual(scoreType, "weight", MethodType.methodType(int.class));
+            return MethodHandles.filterReturnValue(score, weight);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * {@code (String) int} handle to {@code type(hand)} of the named {@code classifier} instance.
+     */
+    static MethodHandle classifierType(String instance) {
+        try {
+            var owner = Class.forName("classifier");
+            var lookup = MethodHandles.privateLookupIn(owner, MethodHandles.lookup());
+            var classifier = lookup.findStaticGetter(owner, instance, owner).invoke();
+            var type = lookup.findVirtual(owner, "type", MethodType.methodType(int.class, CharSequence.class));
+            return type.bindTo(classifier).asType(MethodType.methodType(int.class, String.class));
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static void main(String... args) throws Exception {
+        org.openjdk.jmh.Main.main(args);
+    }
+}
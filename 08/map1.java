@@ -6,9 +6,8 @@ import java.math.BigInteger;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
-import java.util.function.Function;
+import java.util.concurrent.ForkJoinTask;
 import java.util.regex.Pattern;
-import java.util.stream.Stream;
 
 import static java.lang.System.*;
 
@@ -35,27 +34,173 @@ import static java.lang.System.*;
  */
 public class map1 {
 
+    /**
+     * Usage: map1 [zzz|parallel]
+     * <p>
+     * {@code zzz} walks from AAA to ZZZ on the compiled {@link Graph}, otherwise all ghosts are walked,
+     * each on its own fork-join task with {@code parallel}.
+     */
     public static void main(String... args) throws IOException {
         var parser = new Parser();
         Files.lines(Path.of("input2.txt")).forEach(parser::parse);
-        var cycles = parser.routeToAllZ();
-        // offsets happen to be 0, which is good.
-        var steps = lcm(Arrays.stream(cycles).mapToInt(Parser.WalkPath.Cycle::period).toArray());
-        out.println(steps);
+        if (args.length > 0 && args[0].equals("zzz")) {
+            var graph = parser.compile();
+            var end = new BitSet();
+            end.set(graph.index("ZZZ"));
+            out.println(graph.steps(graph.index("AAA"), end));
+            return;
+        }
+        var cycles = parser.routeToAllZ(args.length > 0 && args[0].equals("parallel"));
+        out.println(Arrival.first(cycles));
     }
 
-    // find least common multiplier of the parameter
-    private static BigInteger lcm(int[] nums) {
-        BigInteger lcm = BigInteger.ONE;
-        for (int i = 0; i < nums.length; i++) {
-            BigInteger num = BigInteger.valueOf(nums[i]);
-            BigInteger gcd = lcm.gcd(num);
-            BigInteger div = num.divide(gcd);
-            lcm = lcm.multiply(div);
+    /**
+     * First step at which every ghost stands on an end node at once. A ghost is on an exit at step {@code t}
+     * when {@code t} is one of its tail exits, or when {@code t >= tail} and {@code t} is congruent to one of its
+     * cycle exits modulo its period. Steps before the longest tail are checked one by one against the first
+     * ghost's exits; after it the congruences of all ghosts are combined with the generalized Chinese remainder
+     * theorem, in longs, or in {@link BigInteger} once a long overflows.
+     */
+    static class Arrival {
+        static BigInteger first(Graph.Cycle[] cycles) {
+            var maxTail = Arrays.stream(cycles).mapToLong(Graph.Cycle::tail).max().orElse(0);
+            var early = earlyArrival(cycles, maxTail);
+            if (early >= 0) {
+                return BigInteger.valueOf(early);
+            }
+            try {
+                return BigInteger.valueOf(periodicArrival(cycles, maxTail));
+            } catch (ArithmeticException e) {
+                return periodicArrivalExact(cycles, BigInteger.valueOf(maxTail));
+            }
+        }
+
+        static boolean isExit(Graph.Cycle cycle, long step) {
+            if (step < cycle.tail()) {
+                return Arrays.binarySearch(cycle.tailExits(), step) >= 0;
+            }
+            return Arrays.binarySearch(cycle.exits(), cycle.tail() + (step - cycle.tail()) % cycle.period()) >= 0;
+        }
+
+        /**
+         * First common exit before {@code maxTail}, or -1.
+         */
+        static long earlyArrival(Graph.Cycle[] cycles, long maxTail) {
+            var first = cycles[0];
+            for (var step : first.tailExits()) {
+                if (step < maxTail && Arrays.stream(cycles).allMatch(c -> isExit(c, step))) {
+                    return step;
+                }
+            }
+            for (long round = 0; first.tail() + round * first.period() < maxTail; round++) {
+                for (var exit : first.exits()) {
+                    var step = exit + round * first.period();
+                    if (step < maxTail && Arrays.stream(cycles).allMatch(c -> isExit(c, step))) {
+                        return step;
+                    }
+                }
+            }
+            return -1;
         }
-        return lcm;
-    }
 
+        /**
+         * Folds the ghosts into a set of residues modulo the lcm of their periods and returns the lowest
+         * solution not below {@code maxTail}. Throws {@link ArithmeticException} when a long overflows.
+         */
+        static long periodicArrival(Graph.Cycle[] cycles, long maxTail) {
+            var residues = new long[] { 0 };
+            var modulus = 1L;
+            for (var cycle : cycles) {
+                var period = cycle.period();
+                var g = gcd(modulus, period);
+                var combined = new TreeSet<Long>();
+                for (var r : residues) {
+                    for (var exit : cycle.exits()) {
+                        var diff = Math.floorMod(exit - r, period);
+                        if (diff % g != 0) {
+                            continue;
+                        }
+                        var step = period / g;
+                        var k = Math.floorMod(Math.multiplyExact(diff / g, inverse(modulus / g % step, step)), step);
+                        combined.add(Math.addExact(r, Math.multiplyExact(modulus, k)));
+                    }
+                }
+                modulus = Math.multiplyExact(modulus / g, period);
+                residues = combined.stream().mapToLong(Long::longValue).toArray();
+                if (residues.length == 0) {
+                    throw new IllegalStateException("Ghosts never meet");
+                }
+            }
+            var best = Long.MAX_VALUE;
+            for (var r : residues) {
+                var t = r >= maxTail ? r : Math.addExact(r, Math.multiplyExact(Math.addExact(Math.subtractExact(maxTail, r), modulus - 1) / modulus, modulus));
+                best = Math.min(best, t);
+            }
+            return best;
+        }
+
+        static BigInteger periodicArrivalExact(Graph.Cycle[] cycles, BigInteger maxTail) {
+            var residues = Set.of(BigInteger.ZERO);
+            var modulus = BigInteger.ONE;
+            for (var cycle : cycles) {
+                var period = BigInteger.valueOf(cycle.period());
+                var g = modulus.gcd(period);
+                var step = period.divide(g);
+                var combined = new TreeSet<BigInteger>();
+                for (var r : residues) {
+                    for (var exit : cycle.exits()) {
+                        var diff = BigInteger.valueOf(exit).subtract(r).mod(period);
+                        if (diff.mod(g).signum() != 0) {
+                            continue;
+                        }
+                        var k = diff.divide(g).multiply(modulus.divide(g).modInverse(step)).mod(step);
+                        combined.add(r.add(modulus.multiply(k)));
+                    }
+                }
+                modulus = modulus.divide(g).multiply(period);
+                residues = combined;
+                if (residues.isEmpty()) {
+                    throw new IllegalStateException("Ghosts never meet");
+                }
+            }
+            var best = (BigInteger) null;
+            for (var r : residues) {
+                var t = r.compareTo(maxTail) >= 0 ? r
+                    : r.add(maxTail.subtract(r).add(modulus).subtract(BigInteger.ONE).divide(modulus).multiply(modulus));
+                best = best == null ? t : best.min(t);
+            }
+            return best;
+        }
+
+        static long gcd(long a, long b) {
+            while (b != 0) {
+                var t = a % b;
+                a = b;
+                b = t;
+            }
+            return a;
+        }
+
+        /**
+         * Inverse of {@code a} modulo {@code m} by the extended Euclidean algorithm, for coprime a and m.
+         */
+        static long inverse(long a, long m) {
+            if (m == 1) {
+                return 0;
+            }
+            long oldR = a, r = m, oldS = 1, s = 0;
+            while (r != 0) {
+                var q = oldR / r;
+                var t = oldR - q * r;
+                oldR = r;
+                r = t;
+                t = oldS - q * s;
+                oldS = s;
+                s = t;
+            }
+            return Math.floorMod(oldS, m);
+        }
+    }
 
     static class Parser {
         String instructions;
@@ -72,6 +217,10 @@ public class map1 {
             nodes.put(node.self, node);
         }
 
+        Graph compile() {
+            return Graph.compile(instructions, nodes.values());
+        }
+
         int routeToZzz() {
             var node = nodes.get("AAA");
             for(int i=0;;i++) {
@@ -87,126 +236,141 @@ public class map1 {
             }
         }
 
-        WalkPath.Cycle[] routeToAllZ() {
-            var nodes = this.nodes.values().stream().filter(Node::isStart).map(this::connect).toArray(ConnectedNode[]::new);
-            WalkPath[] paths = Stream.of(nodes).map(n -> new WalkPath()).toArray(WalkPath[]::new);
-
-
-            for (int i=0;i>=0 && i < Integer.MAX_VALUE;i++) {
-                var instruction = instructions.charAt(i%instructions.length());
-                Function<ConnectedNode,ConnectedNode> turn =  instruction == 'L' ? ConnectedNode::left : ConnectedNode::right;
-                boolean finished = true;
-                for (int j=0; j<nodes.length; j++) {
-                    paths[j] = paths[j].visit(j, i, i%instructions.length(), nodes[j]);
-                    if (instruction == 'L') {
-                        nodes[j] = nodes[j].left();
-                    } else {
-                        nodes[j] = nodes[j].right();
-                    }
-                    finished &=  paths[j].cycle() != null;
-                }
-                if (finished) {
-                    return Arrays.stream(paths).map(WalkPath::cycle).toArray(WalkPath.Cycle[]::new);
-                }
-                if (i % 1_000_000 == 0) {
-                    out.println("Still at it %d".formatted(i));
-                }
-            }
-            throw new AssertionError("Out of int range");
+        Graph.Cycle[] routeToAllZ() {
+            return routeToAllZ(false);
         }
 
-        record WalkPath(SortedSet<Integer> exits, Set<Visit> visits, Cycle cycle) {
-            WalkPath() {
-                this(new TreeSet<>(), new HashSet<>(), null);
+        /**
+         * Cycle of every ghost. Ghosts are independent, so with {@code parallel} each start node's walk is
+         * a separate task on the common fork-join pool and the results are collected in start order.
+         */
+        Graph.Cycle[] routeToAllZ(boolean parallel) {
+            var graph = compile();
+            var starts = graph.starts().stream().toArray();
+            Graph.Cycle[] cycles;
+            if (parallel) {
+                var tasks = Arrays.stream(starts).mapToObj(start -> ForkJoinTask.adapt(() -> graph.cycle(start))).toList();
+                cycles = ForkJoinTask.invokeAll(tasks).stream().map(ForkJoinTask::join).toArray(Graph.Cycle[]::new);
+            } else {
+                cycles = Arrays.stream(starts).mapToObj(graph::cycle).toArray(Graph.Cycle[]::new);
             }
-
-            WalkPath visit(int path, int routeStep, int instructionStep, ConnectedNode node) {
-                if (cycle != null) {
-                    return this;
-                }
-                if (node.isEnd()) {
-                    exits.add(routeStep);
-                }
-                var visit = new Visit(routeStep, node, instructionStep);
-                if (!visits.add(visit)) {
-                    var previous = visits.stream().filter(visit::equals).findAny().get();
-                    var exit = exits.first();
-                    var cycleHead = previous.routeStep;
-                    var period = routeStep - previous.routeStep;
-                    var exitDistance = routeStep - exit;
-                    var offset = cycleHead - exitDistance;
-                    out.println("%d: Cycle at %d+n*%d".formatted(path, cycleHead-exitDistance,period));
-                    return new WalkPath(exits, visits, new Cycle(offset, period));
-                }
-                return this;
+            for (int i = 0; i < starts.length; i++) {
+                var cycle = cycles[i];
+                out.println("%s: tail %d, period %d, exits %s".formatted(graph.names()[starts[i]], cycle.tail(), cycle.period(), Arrays.toString(cycle.exits())));
             }
-
-            record Cycle(int offset, int period) {}
+            return cycles;
         }
-        record VisitKey(ConnectedNode n, int instruction) {}
-
-        static class Visit {
-            final VisitKey key;
-            final int routeStep;
-
-            Visit(int step, ConnectedNode n, int instruction) {
-                this.key = new VisitKey(n, instruction);
-                this.routeStep = step;
-            }
+    }
 
-            void printCycle(int path, int currentStep) {
-                out.println("%d: Cycle at %d+n*%d".formatted(path, routeStep,currentStep-routeStep));
+    /**
+     * Network compiled to node indexes. {@code next[0]} and {@code next[1]} hold the left and right neighbour
+     * of every node, and {@code instructions} the turns as 0 for L and 1 for R, so a step is
+     * {@code node = next[instructions[i]][node]}.
+     */
+    record Graph(String[] names, int[][] next, BitSet starts, BitSet ends, byte[] instructions) {
+        static Graph compile(String instructions, Collection<Node> nodes) {
+            var names = nodes.stream().map(Node::self).sorted().toArray(String[]::new);
+            var index = new HashMap<String, Integer>();
+            for (int i = 0; i < names.length; i++) {
+                index.put(names[i], i);
             }
-
-            @Override
-            public boolean equals(Object o) {
-                if (this == o) return true;
-                if (o == null || getClass() != o.getClass()) return false;
-                Visit visit = (Visit) o;
-                return Objects.equals(key, visit.key);
+            var next = new int[2][names.length];
+            var starts = new BitSet(names.length);
+            var ends = new BitSet(names.length);
+            for (var node : nodes) {
+                int i = index.get(node.self());
+                next[0][i] = index.get(node.left());
+                next[1][i] = index.get(node.right());
+                starts.set(i, node.isStart());
+                ends.set(i, node.isEnd());
             }
-
-            @Override
-            public int hashCode() {
-                return Objects.hash(key);
+            var turns = new byte[instructions.length()];
+            for (int i = 0; i < turns.length; i++) {
+                turns[i] = (byte) (instructions.charAt(i) == 'L' ? 0 : 1);
             }
+            return new Graph(names, next, starts, ends, turns);
         }
 
-        Map<String, ConnectedNode> connectedNodes = new HashMap<>();
-        class ConnectedNode {
-            Node self;
-            ConnectedNode left;
-            ConnectedNode right;
-
-            ConnectedNode(Node self) {
-                this.self = self;
+        int index(String name) {
+            var i = Arrays.binarySearch(names, name);
+            if (i < 0) {
+                throw new IllegalArgumentException("No node " + name);
             }
+            return i;
+        }
 
-            ConnectedNode left() {
-                if (left == null) {
-                    left = connect(self.left);
+        /**
+         * Number of steps from {@code from} until a node in {@code targets} is reached.
+         */
+        long steps(int from, BitSet targets) {
+            var node = from;
+            var instruction = 0;
+            for (long step = 1; ; step++) {
+                node = next[instructions[instruction]][node];
+                if (targets.get(node)) {
+                    return step;
                 }
-                return left;
-            }
-
-            ConnectedNode right() {
-                if (right == null) {
-                    right = connect(self.right);
+                if (++instruction == instructions.length) {
+                    instruction = 0;
                 }
-                return right;
-            }
-
-            boolean isEnd() {
-                return self.isEnd();
             }
-
         }
 
-        ConnectedNode connect(Node n) {
-            return connect(n.self);
+        /**
+         * Walk from {@code start} seen as a sequence of states {@code node * instructions.length + instruction}.
+         * It ends in a cycle, {@code tail} states after the start and {@code period} states long.
+         * {@code tailExits} are the steps before the cycle that stand on an end node, {@code exits} those in the
+         * first round of the cycle, i.e. in {@code [tail, tail + period)}. Every later exit is one of those plus a
+         * multiple of the period.
+         */
+        record Cycle(long tail, long period, long[] tailExits, long[] exits) {}
+
+        long advance(long state) {
+            var node = (int) (state / instructions.length);
+            var instruction = (int) (state % instructions.length);
+            node = next[instructions[instruction]][node];
+            return (long) node * instructions.length + (instruction + 1 == instructions.length ? 0 : instruction + 1);
         }
-        ConnectedNode connect(String node) {
-            return connectedNodes.computeIfAbsent(node, n -> new ConnectedNode(nodes.get(n)));
+
+        /**
+         * Finds the cycle of the walk from {@code start} with Brent's algorithm, in constant memory, and then
+         * walks tail and one period once more to collect the exits.
+         */
+        Cycle cycle(int start) {
+            var origin = (long) start * instructions.length;
+            long power = 1, period = 1;
+            var tortoise = origin;
+            var hare = advance(origin);
+            while (tortoise != hare) {
+                if (power == period) {
+                    tortoise = hare;
+                    power *= 2;
+                    period = 0;
+                }
+                hare = advance(hare);
+                period++;
+            }
+            tortoise = hare = origin;
+            for (long i = 0; i < period; i++) {
+                hare = advance(hare);
+            }
+            var tail = 0L;
+            while (tortoise != hare) {
+                tortoise = advance(tortoise);
+                hare = advance(hare);
+                tail++;
+            }
+            var tailExits = new ArrayList<Long>();
+            var exits = new ArrayList<Long>();
+            var state = origin;
+            for (long step = 0; step < tail + period; step++) {
+                if (ends.get((int) (state / instructions.length))) {
+                    (step < tail ? tailExits : exits).add(step);
+                }
+                state = advance(state);
+            }
+            return new Cycle(tail, period, tailExits.stream().mapToLong(Long::longValue).toArray(),
+                exits.stream().mapToLong(Long::longValue).toArray());
         }
     }
 
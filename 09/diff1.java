@@ -2,16 +2,42 @@
 
 
 import java.io.IOException;
+import java.math.BigInteger;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
 
 import static java.lang.System.*;
 
 public class diff1 {
 
+    /**
+     * Usage: diff1 [binomial|columnar]
+     * <p>
+     * {@code binomial} evaluates the closed form in {@link Binomial} instead of building difference pyramids.
+     * {@code columnar} loads all sequences into one {@link Matrix} and differences it column by column.
+     */
     public static void main(String... args) throws IOException {
+        if (args.length > 0 && args[0].equals("columnar")) {
+            var matrix = Matrix.load(Files.readAllLines(Path.of("input2.txt")));
+            var next = new long[matrix.rows()];
+            var previous = new long[matrix.rows()];
+            matrix.extrapolate(next, previous);
+            out.println(Arrays.stream(next).sum());
+            out.println(Arrays.stream(previous).sum());
+            return;
+        }
+        if (args.length > 0 && args[0].equals("binomial")) {
+            var input = Files.lines(Path.of("input2.txt")).map(Binomial::parse).toList();
+            out.println(input.stream().mapToLong(Binomial::next).sum());
+            out.println(input.stream().mapToLong(Binomial::previous).sum());
+            return;
+        }
         var input = Files.lines(Path.of("input2.txt")).map(Diff::parse).toList();
         var answer1 = input.stream().mapToInt(Diff::next).sum();
         out.println(answer1);
@@ -65,4 +91,189 @@ public class diff1 {
             return Arrays.stream(diffs.get(index)).allMatch(i -> i==0);
         }
     }
+
+    /**
+     * Extrapolation without the pyramid. Differencing down to zeros and summing back up is the same as
+     * extending the polynomial of degree below n through the n values, so for values a[0..n-1]
+     * <pre>
+     * next     = sum (-1)^(n-1-i) * C(n, i)   * a[i]
+     * previous = sum (-1)^i       * C(n, i+1) * a[i]
+     * </pre>
+     * The signed coefficients depend only on n and are cached per length. All arithmetic is exact and
+     * throws {@link ArithmeticException} on long overflow.
+     */
+    static class Binomial {
+        /**
+         * Longest sequence whose coefficients fit in a long: C(66, 33) does, C(67, 33) no longer does.
+         */
+        static final int LONG_ROWS = 66;
+
+        private static final Map<Integer, long[][]> COEFFICIENTS = new ConcurrentHashMap<>();
+        private static final Map<Integer, BigInteger[][]> EXACT_COEFFICIENTS = new ConcurrentHashMap<>();
+
+        static long[] parse(String input) {
+            return Arrays.stream(input.trim().split("\\s+")).mapToLong(Long::parseLong).toArray();
+        }
+
+        /**
+         * {@code [0]} holds the coefficients of next, {@code [1]} those of previous, for sequences of length n.
+         * Only defined up to {@link #LONG_ROWS}, longer sequences need {@link #exactCoefficients(int)}.
+         */
+        static long[][] coefficients(int n) {
+            if (n > LONG_ROWS) {
+                throw new ArithmeticException("Coefficients for length %d do not fit in a long".formatted(n));
+            }
+            return COEFFICIENTS.computeIfAbsent(n, length -> Arrays.stream(exactCoefficients(length))
+                .map(weights -> Arrays.stream(weights).mapToLong(BigInteger::longValueExact).toArray())
+                .toArray(long[][]::new));
+        }
+
+        /**
+         * Same as {@link #coefficients(int)}, for sequences of any length.
+         */
+        static BigInteger[][] exactCoefficients(int n) {
+            return EXACT_COEFFICIENTS.computeIfAbsent(n, length -> {
+                // row n of Pascal's triangle
+                var row = new BigInteger[length + 1];
+                Arrays.fill(row, BigInteger.ZERO);
+                row[0] = BigInteger.ONE;
+                for (int k = 1; k <= length; k++) {
+                    for (int i = k; i > 0; i--) {
+                        row[i] = row[i].add(row[i - 1]);
+                    }
+                }
+                var next = new BigInteger[length];
+                var previous = new BigInteger[length];
+                for (int i = 0; i < length; i++) {
+                    next[i] = (length - 1 - i) % 2 == 0 ? row[i] : row[i].negate();
+                    previous[i] = i % 2 == 0 ? row[i + 1] : row[i + 1].negate();
+                }
+                return new BigInteger[][] { next, previous };
+            });
+        }
+
+        static long next(long[] values) {
+            return extrapolate(0, values);
+        }
+
+        static long previous(long[] values) {
+            return extrapolate(1, values);
+        }
+
+        /**
+         * Weighted sum in longs while the coefficients and products fit, otherwise in BigInteger. Large
+         * coefficients mostly cancel out, so the result is exact as long as it fits in a long itself.
+         */
+        private static long extrapolate(int direction, long[] values) {
+            if (values.length <= LONG_ROWS) {
+                try {
+                    return weightedSum(coefficients(values.length)[direction], values);
+                } catch (ArithmeticException e) {
+                    // an intermediate product overflowed, redo it exactly
+                }
+            }
+            return weightedSum(exactCoefficients(values.length)[direction], values);
+        }
+
+        private static long weightedSum(long[] weights, long[] values) {
+            var sum = 0L;
+            for (int i = 0; i < values.length; i++) {
+                sum = Math.addExact(sum, Math.multiplyExact(weights[i], values[i]));
+            }
+            return sum;
+        }
+
+        private static long weightedSum(BigInteger[] weights, long[] values) {
+            var sum = BigInteger.ZERO;
+            for (int i = 0; i < values.length; i++) {
+                sum = sum.add(weights[i].multiply(BigInteger.valueOf(values[i])));
+            }
+            return sum.longValueExact();
+        }
+    }
+
+    /**
+     * Equal length sequences in one flat column-major array, {@code values[column * rows + row]}.
+     */
+    record Matrix(int rows, int columns, long[] values) {
+        static final int BLOCK = 4096;
+
+        static Matrix load(List<String> lines) {
+            var rows = lines.stream().filter(l -> !l.isBlank()).toList();
+            if (rows.isEmpty()) {
+                return new Matrix(0, 0, new long[0]);
+            }
+            var columns = Binomial.parse(rows.get(0)).length;
+            var values = new long[rows.size() * columns];
+            for (int r = 0; r < rows.size(); r++) {
+                var line = rows.get(r);
+                var column = 0;
+                for (int i = 0; i < line.length(); i++) {
+                    var c = line.charAt(i);
+                    if (c == ' ') {
+                        continue;
+                    }
+                    var negative = c == '-';
+                    if (negative) {
+                        i++;
+                    }
+                    var value = 0L;
+                    while (i < line.length() && line.charAt(i) != ' ') {
+                        value = value * 10 + line.charAt(i++) - '0';
+                    }
+                    if (column == columns) {
+                        throw new IllegalArgumentException("Line %d is longer than %d values".formatted(r + 1, columns));
+                    }
+                    values[column++ * rows.size() + r] = negative ? -value : value;
+                }
+                if (column != columns) {
+                    throw new IllegalArgumentException("Line %d has %d values instead of %d".formatted(r + 1, column, columns));
+                }
+            }
+            return new Matrix(rows.size(), columns, values);
+        }
+
+        /**
+         * Fills next and previous values of every row. Rows are split into blocks processed in parallel.
+         * Within a block the differences are taken in place, one column at a time over all rows of the block,
+         * so every inner loop runs over contiguous longs. After level k the last column holds the last value
+         * of the k-th differences and column k the first one, which is all that extrapolation needs.
+         * The matrix itself is left untouched.
+         */
+        void extrapolate(long[] next, long[] previous) {
+            var blocks = (rows + BLOCK - 1) / BLOCK;
+            IntStream.range(0, blocks).parallel().forEach(b -> {
+                var from = b * BLOCK;
+                var size = Math.min(BLOCK, rows - from);
+                var work = new long[columns * size];
+                for (int j = 0; j < columns; j++) {
+                    System.arraycopy(values, j * rows + from, work, j * size, size);
+                }
+                var last = (columns - 1) * size;
+                var nextSum = new long[size];
+                var previousSum = new long[size];
+                for (int r = 0; r < size; r++) {
+                    nextSum[r] = work[last + r];
+                    previousSum[r] = work[r];
+                }
+                for (int level = 1; level < columns; level++) {
+                    for (int j = columns - 1; j >= level; j--) {
+                        var to = j * size;
+                        var before = (j - 1) * size;
+                        for (int r = 0; r < size; r++) {
+                            work[to + r] -= work[before + r];
+                        }
+                    }
+                    var first = level * size;
+                    var sign = level % 2 == 0 ? 1 : -1;
+                    for (int r = 0; r < size; r++) {
+                        nextSum[r] += work[last + r];
+                        previousSum[r] += sign * work[first + r];
+                    }
+                }
+                System.arraycopy(nextSum, 0, next, from, size);
+                System.arraycopy(previousSum, 0, previous, from, size);
+            });
+        }
+    }
 }
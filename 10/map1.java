@@ -12,7 +12,18 @@ import static java.lang.System.*;
 
 public class map1 {
 
+    /**
+     * Usage: map1 [compiled]
+     * <p>
+     * {@code compiled} traces the loop on a {@link CompiledMap} and prints only the two answers.
+     */
     public static void main(String... args) throws IOException {
+        if (args.length > 0 && args[0].equals("compiled")) {
+            var map = CompiledMap.compile(Files.readAllLines(Path.of("input2.txt")));
+            out.println(map.traceLoop() / 2);
+            out.println(map.countEnclosed());
+            return;
+        }
         var input = new PipeMap(Files.lines(Path.of("input2.txt")));
         var distances = DistanceMap.forMap(input);
 
@@ -179,6 +190,135 @@ public class map1 {
         }
     }
 
+    /**
+     * Pipe map as one {@code byte[]} indexed by {@code y * width + x}. The low four bits of a cell are its
+     * connections ({@link #N}, {@link #E}, {@link #S}, {@link #W}); {@link #LOOP} is set on cells of the loop
+     * once it is traced. The start cell gets the connections of the neighbours pointing back at it.
+     */
+    record CompiledMap(int width, int height, byte[] cells, int start) {
+        static final int N = 1, E = 2, S = 4, W = 8, LOOP = 16;
+
+        static CompiledMap compile(List<String> lines) {
+            var height = lines.size();
+            var width = lines.get(0).length();
+            var cells = new byte[width * height];
+            var start = -1;
+            for (int y = 0; y < height; y++) {
+                var line = lines.get(y);
+                for (int x = 0; x < width; x++) {
+                    var symbol = line.charAt(x);
+                    if (symbol == 'S') {
+                        start = y * width + x;
+                    }
+                    cells[y * width + x] = (byte) switch (symbol) {
+                        case '|' -> N | S;
+                        case '-' -> E | W;
+                        case 'L' -> N | E;
+                        case 'J' -> N | W;
+                        case '7' -> S | W;
+                        case 'F' -> S | E;
+                        case '.', 'S' -> 0;
+                        default -> throw new IllegalArgumentException("WTF is " + symbol);
+                    };
+                }
+            }
+            if (start < 0) {
+                throw new IllegalArgumentException("No start position found");
+            }
+            var x = start % width;
+            var y = start / width;
+            var mask = 0;
+            if (y > 0 && (cells[start - width] & S) != 0) {
+                mask |= N;
+            }
+            if (y < height - 1 && (cells[start + width] & N) != 0) {
+                mask |= S;
+            }
+            if (x > 0 && (cells[start - 1] & E) != 0) {
+                mask |= W;
+            }
+            if (x < width - 1 && (cells[start + 1] & W) != 0) {
+                mask |= E;
+            }
+            if (Integer.bitCount(mask) != 2) {
+                throw new AssertionError("Expected 2 starting directions");
+            }
+            cells[start] = (byte) mask;
+            return new CompiledMap(width, height, cells, start);
+        }
+
+        static int opposite(int direction) {
+            return direction < S ? direction << 2 : direction >>> 2;
+        }
+
+        int offset(int direction) {
+            return switch (direction) {
+                case N -> -width;
+                case S -> width;
+                case E -> 1;
+                default -> -1;
+            };
+        }
+
+        /**
+         * Follows the loop from the start, marking its cells, and returns its length. Each step leaves a cell
+         * through the one connection that is not the way it came in, into a neighbour that connects back.
+         */
+        int traceLoop() {
+            var index = start;
+            var direction = Integer.lowestOneBit(cells[start]);
+            var length = 0;
+            do {
+                cells[index] |= LOOP;
+                var next = neighbour(index, direction);
+                if (Integer.bitCount(direction) != 1 || next < 0 || (cells[next] & opposite(direction)) == 0) {
+                    throw new AssertionError("There should be only one way to go: %d,%d -> %s"
+                        .formatted(index % width, index / width, Integer.toBinaryString(direction)));
+                }
+                index = next;
+                direction = cells[index] & 15 & ~opposite(direction);
+                length++;
+            } while (index != start);
+            return length;
+        }
+
+        /**
+         * Index of the cell next to {@code index} in {@code direction}, or -1 when that leaves the grid.
+         */
+        int neighbour(int index, int direction) {
+            var x = index % width;
+            var y = index / width;
+            var inside = switch (direction) {
+                case N -> y > 0;
+                case S -> y < height - 1;
+                case E -> x < width - 1;
+                case W -> x > 0;
+                default -> false;
+            };
+            return inside ? index + offset(direction) : -1;
+        }
+
+        /**
+         * Cells inside the traced loop, by crossing parity along each row: passing a loop cell that connects
+         * south flips between outside and inside.
+         */
+        int countEnclosed() {
+            var enclosed = 0;
+            for (int y = 0; y < height; y++) {
+                var inside = false;
+                for (int index = y * width; index < (y + 1) * width; index++) {
+                    var cell = cells[index];
+                    if ((cell & LOOP) != 0) {
+                        inside ^= (cell & S) != 0;
+                    } else if (inside) {
+                        enclosed++;
+                    }
+                }
+            }
+            return enclosed;
+        }
+    }
+
     record Coord(int x, int y) {}
 
     enum Cell {